@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.logging.Logger;
 
@@ -39,10 +40,12 @@ import javax.ws.rs.core.Response;
 import org.glassfish.jersey.client.ClientConfig;
 
 import com.fasterxml.jackson.jaxrs.json.JacksonJaxbJsonProvider;
+import com.scylladb.jmx.utils.InetAddressUtils;
 import com.scylladb.jmx.utils.SnapshotDetailsTabularData;
 
 public class APIClient {
-    private Map<String, CacheEntry> cache = new HashMap<String, CacheEntry>();
+    // shared by concurrent JMX calls and the background samplers
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<String, CacheEntry>();
     private final APIConfig config;
     private final ClientConfig clientConfig;
     private final Client client;
@@ -454,10 +457,10 @@ public class APIClient {
 
     public List<InetAddress> getListInetAddressValue(String string, MultivaluedMap<String, String> queryParams) {
         List<String> vals = getListStrValue(string, queryParams);
-        List<InetAddress> res = new ArrayList<InetAddress>();
+        List<InetAddress> res = new ArrayList<InetAddress>(vals.size());
         for (String val : vals) {
             try {
-                res.add(InetAddress.getByName(val));
+                res.add(InetAddressUtils.getByName(val));
             } catch (UnknownHostException e) {
                 // TODO Auto-generated catch block
                 e.printStackTrace();
@@ -523,7 +526,7 @@ public class APIClient {
         for (int i = 0; i < arr.size(); i++) {
             try {
                 obj = arr.getJsonObject(i);
-                res.put(InetAddress.getByName(obj.getString("key")), Float.parseFloat(obj.getString("value")));
+                res.put(InetAddressUtils.getByName(obj.getString("key")), Float.parseFloat(obj.getString("value")));
             } catch (UnknownHostException e) {
                 logger.warning("Bad formatted address " + obj.getString("key"));
             }
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2026 ScyllaDB
+ */
+
+/*
+ * This file is part of Scylla.
+ *
+ * Scylla is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Scylla is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Scylla.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.scylladb.jmx.utils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Address helpers for values coming back from the Scylla REST API.
+ * <p>
+ * Endpoints are (nearly) always IP literals, so we parse them ourselves and
+ * never hand them to {@link InetAddress#getByName(String)}, which may consult
+ * the resolver. Parsed addresses are kept in a bounded cache, so the same
+ * endpoint seen in a ring map with thousands of entries is parsed once and
+ * always normalizes to the same {@link String} instance.
+ */
+public class InetAddressUtils {
+    private static final int MAX_CACHED = 1 << 16;
+
+    private static final class Entry {
+        final InetAddress address;
+        final String hostAddress;
+
+        Entry(InetAddress address, String hostAddress) {
+            this.address = address;
+            this.hostAddress = hostAddress;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private InetAddressUtils() {
+    }
+
+    /**
+     * Same as {@link InetAddress#getByName(String)}, but IP literals are
+     * resolved from the cache without going anywhere near DNS.
+     */
+    public static InetAddress getByName(String host) throws UnknownHostException {
+        Entry e = lookup(host);
+        if (e != null) {
+            return e.address;
+        }
+        return InetAddress.getByName(host);
+    }
+
+    /**
+     * Returns the canonical textual form of the given address, i.e.
+     * <code>InetAddress.getByName(s).getHostAddress()</code>, or the string
+     * itself if it cannot be resolved.
+     */
+    public static String normalize(String s) {
+        Entry e = lookup(s);
+        if (e != null) {
+            return e.hostAddress;
+        }
+        try {
+            return InetAddress.getByName(s).getHostAddress();
+        } catch (UnknownHostException ex) {
+            return s;
+        }
+    }
+
+    private static Entry lookup(String s) {
+        if (s == null) {
+            return null;
+        }
+        Entry e = cache.get(s);
+        if (e != null) {
+            return e;
+        }
+        byte[] addr = parseLiteral(s);
+        if (addr == null) {
+            return null;
+        }
+        InetAddress address;
+        try {
+            // no lookup done for raw addresses
+            address = InetAddress.getByAddress(addr);
+        } catch (UnknownHostException ex) {
+            return null;
+        }
+        String hostAddress = address.getHostAddress();
+        // Share one entry (and one string instance) between all spellings
+        // of the same address.
+        e = cache.get(hostAddress);
+        if (e == null) {
+            e = new Entry(address, hostAddress);
+        }
+        if (cache.size() >= MAX_CACHED) {
+            cache.clear();
+        }
+        cache.putIfAbsent(hostAddress, e);
+        cache.putIfAbsent(s, e);
+        return e;
+    }
+
+    /**
+     * Parses an IPv4 or IPv6 literal.
+     *
+     * @return the 4 or 16 byte address, or <code>null</code> if the string is
+     *         not a literal we know how to handle (host names, scoped IPv6
+     *         addresses, IPv4 shorthand forms etc).
+     */
+    public static byte[] parseLiteral(String s) {
+        int len = s.length();
+        if (len == 0) {
+            return null;
+        }
+        int begin = 0, end = len;
+        if (s.charAt(0) == '[') {
+            if (s.charAt(len - 1) != ']') {
+                return null;
+            }
+            begin = 1;
+            end = len - 1;
+        }
+        for (int i = begin; i < end; ++i) {
+            if (s.charAt(i) == ':') {
+                return parseIPv6(s, begin, end);
+            }
+        }
+        if (begin != 0) {
+            return null;
+        }
+        byte[] res = new byte[4];
+        return parseIPv4(s, begin, end, res, 0) ? res : null;
+    }
+
+    private static boolean parseIPv4(String s, int begin, int end, byte[] dst, int offset) {
+        int part = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = begin; i < end; ++i) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                if (digits == 0 || part == 3) {
+                    return false;
+                }
+                dst[offset + part++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9') {
+                // reject leading zeros, they are ambiguous (octal or not)
+                if (digits > 0 && value == 0) {
+                    return false;
+                }
+                value = value * 10 + (c - '0');
+                if (++digits > 3 || value > 255) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        if (digits == 0 || part != 3) {
+            return false;
+        }
+        dst[offset + part] = (byte) value;
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static byte[] parseIPv6(String s, int begin, int end) {
+        byte[] res = new byte[16];
+        int pos = 0; // next byte to write
+        int gap = -1; // byte position of "::"
+        int i = begin;
+
+        if (end - begin >= 2 && s.charAt(i) == ':') {
+            if (s.charAt(i + 1) != ':') {
+                return null;
+            }
+            gap = 0;
+            i += 2;
+        }
+        while (i < end) {
+            if (pos == 16) {
+                return null;
+            }
+            int groupStart = i;
+            int value = 0;
+            while (i < end) {
+                int h = hexValue(s.charAt(i));
+                if (h < 0) {
+                    break;
+                }
+                value = (value << 4) | h;
+                if (++i - groupStart > 4) {
+                    return null;
+                }
+            }
+            if (i < end && s.charAt(i) == '.') {
+                // trailing embedded IPv4
+                if (pos > 12 || !parseIPv4(s, groupStart, end, res, pos)) {
+                    return null;
+                }
+                pos += 4;
+                break;
+            }
+            if (i == groupStart) {
+                return null;
+            }
+            res[pos++] = (byte) (value >> 8);
+            res[pos++] = (byte) value;
+            if (i == end) {
+                break;
+            }
+            if (s.charAt(i) != ':') {
+                // includes '%', scoped addresses are left to the JDK
+                return null;
+            }
+            ++i;
+            if (i < end && s.charAt(i) == ':') {
+                if (gap >= 0) {
+                    return null;
+                }
+                gap = pos;
+                ++i;
+            } else if (i == end) {
+                return null;
+            }
+        }
+        if (gap >= 0) {
+            if (pos == 16) {
+                return null;
+            }
+            int n = pos - gap;
+            System.arraycopy(res, gap, res, 16 - n, n);
+            for (int j = gap; j < 16 - n; ++j) {
+                res[j] = 0;
+            }
+        } else if (pos != 16) {
+            return null;
+        }
+        return res;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2026 ScyllaDB
+ */
+
+/*
+ * This file is part of Scylla.
+ *
+ * Scylla is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Scylla is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Scylla.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.scylladb.jmx.utils;
+
+import static com.scylladb.jmx.utils.InetAddressUtils.parseLiteral;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.junit.Test;
+
+public class InetAddressUtilsTest {
+    private static byte[] bytes(int... values) {
+        byte[] res = new byte[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            res[i] = (byte) values[i];
+        }
+        return res;
+    }
+
+    // the JDK parses literals without any lookup
+    private static void assertSameAsJdk(String s) throws UnknownHostException {
+        assertArrayEquals(s, InetAddress.getByName(s).getAddress(), parseLiteral(s));
+    }
+
+    @Test
+    public void testIPv4() throws UnknownHostException {
+        assertArrayEquals(bytes(10, 0, 0, 1), parseLiteral("10.0.0.1"));
+        assertArrayEquals(bytes(255, 255, 255, 255), parseLiteral("255.255.255.255"));
+        assertSameAsJdk("0.0.0.0");
+        assertSameAsJdk("192.168.100.42");
+    }
+
+    @Test
+    public void testIPv6() throws UnknownHostException {
+        assertArrayEquals(new byte[16], parseLiteral("::"));
+        assertArrayEquals(bytes(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1), parseLiteral("::1"));
+        assertArrayEquals(bytes(0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0), parseLiteral("1::"));
+        assertSameAsJdk("2001:db8::ff00:42:8329");
+        assertSameAsJdk("2001:0db8:0000:0000:0000:ff00:0042:8329");
+        assertSameAsJdk("FE80::ABCD:EF01");
+        assertSameAsJdk("1:2:3:4:5:6:7::");
+        assertSameAsJdk("::2:3:4:5:6:7:8");
+        assertSameAsJdk("1:2:3:4:5:6:7:8");
+    }
+
+    @Test
+    public void testEmbeddedIPv4() throws UnknownHostException {
+        // the JDK turns mapped addresses into IPv4 ones, so spell them out
+        assertArrayEquals(bytes(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0xff, 0xff, 192, 168, 0, 1),
+                parseLiteral("::ffff:192.168.0.1"));
+        assertArrayEquals(bytes(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 10, 0, 0, 1), parseLiteral("::10.0.0.1"));
+        assertSameAsJdk("64:ff9b::10.0.0.1");
+        assertSameAsJdk("1:2:3:4:5:6:1.2.3.4");
+        assertNull(parseLiteral("1:2:3:4:5:6:7:1.2.3.4"));
+        assertNull(parseLiteral("::1.2.3"));
+        assertNull(parseLiteral("::1.2.3.4.5"));
+        assertNull(parseLiteral("::1.2.3.4:5"));
+        assertNull(parseLiteral("::01.2.3.4"));
+    }
+
+    @Test
+    public void testLeadingZeros() throws UnknownHostException {
+        // ambiguous in IPv4 (octal or not), left to the JDK
+        assertNull(parseLiteral("010.0.0.1"));
+        assertNull(parseLiteral("192.168.001.1"));
+        assertNull(parseLiteral("00.0.0.0"));
+        // plain in IPv6
+        assertSameAsJdk("0001:0002::0003");
+        assertNull(parseLiteral("00001::"));
+    }
+
+    @Test
+    public void testBrackets() throws UnknownHostException {
+        assertArrayEquals(parseLiteral("::1"), parseLiteral("[::1]"));
+        assertArrayEquals(parseLiteral("2001:db8::1"), parseLiteral("[2001:db8::1]"));
+        assertNull(parseLiteral("[10.0.0.1]"));
+        assertNull(parseLiteral("[::1"));
+        assertNull(parseLiteral("::1]"));
+        assertNull(parseLiteral("[]"));
+        assertNull(parseLiteral("["));
+    }
+
+    @Test
+    public void testInvalid() {
+        for (String s : new String[] { "", "1", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", "1.2.3.", ".1.2.3",
+                "1.2.3.4 ", "1.2.3.-4", ":", ":::", "1:2", ":1::", "1:", "1::2::3", "12345::", "1:2:3:4:5:6:7:8:9",
+                "1:2:3:4:5:6:7:8::", "::1:2:3:4:5:6:7:8", "g::", "fe80::1%eth0", "localhost", "example.com" }) {
+            assertNull(s, parseLiteral(s));
+        }
+    }
+
+    @Test
+    public void testNormalize() {
+        String s = InetAddressUtils.normalize("::1");
+        assertEquals("0:0:0:0:0:0:0:1", s);
+        // all spellings share one instance
+        assertSame(s, InetAddressUtils.normalize("0:0:0:0:0:0:0:1"));
+        assertSame(s, InetAddressUtils.normalize("[::1]"));
+        assertEquals("10.0.0.1", InetAddressUtils.normalize("10.0.0.1"));
+        assertEquals("not an address", InetAddressUtils.normalize("not an address"));
+    }
+}
@@ -16,6 +16,7 @@ import org.apache.cassandra.gms.FailureDetector;
 import org.apache.cassandra.gms.Gossiper;
 import org.apache.cassandra.locator.EndpointSnitchInfo;
 import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.repair.RepairScheduler;
 import org.apache.cassandra.service.CacheService;
 import org.apache.cassandra.service.GCInspector;
 import org.apache.cassandra.service.StorageProxy;
@@ -25,6 +26,7 @@ import org.apache.cassandra.streaming.StreamManager;
 import com.scylladb.jmx.api.APIClient;
 import com.scylladb.jmx.api.APIConfig;
 import com.scylladb.jmx.metrics.APIMBean;
+import com.scylladb.jmx.metrics.MetricsService;
 
 public class Main {
     // todo: command line options. Make us an agent class (also)
@@ -38,7 +40,8 @@ public class Main {
         MBeanServer server = getPlatformMBeanServer();
         for (Class<? extends APIMBean> clazz : asList(StorageService.class, StorageProxy.class, MessagingService.class,
                 CommitLog.class, Gossiper.class, EndpointSnitchInfo.class, FailureDetector.class, CacheService.class,
-                CompactionManager.class, GCInspector.class, StreamManager.class)) {
+                CompactionManager.class, GCInspector.class, StreamManager.class, RepairScheduler.class,
+                MetricsService.class)) {
             Constructor<? extends APIMBean> c = clazz.getDeclaredConstructor(APIClient.class);
             APIMBean m = c.newInstance(client);
             server.registerMBean(m, null);
@@ -0,0 +1,151 @@
+package com.scylladb.jmx.metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.management.ObjectName;
+
+/**
+ * Last seen value of every sampled attribute, with the version at which it
+ * last changed.
+ * <p>
+ * Versions come from a single counter, starting at a value derived from the
+ * creation time so that cursors handed out by a previous proxy instance are
+ * older than anything recorded by this one. Attributes that go away are kept
+ * as tombstones for {@link #TOMBSTONE_TTL} ms, so that readers catching up
+ * learn about the removal. Attributes no reader has recorded for as long are
+ * forgotten too, e.g. those of a pattern nobody reads changes of any more.
+ */
+class MetricVersions {
+    static final long TOMBSTONE_TTL = Long.getLong("scylla.jmx.metrics_service.tombstone_ttl_ms", 60 * 60 * 1000);
+
+    static final class Entry {
+        final ObjectName name;
+        final String attribute;
+        Object value;
+        long version;
+        // time of removal, 0 if present
+        long removed;
+        // time last recorded
+        long recorded;
+
+        Entry(ObjectName name, String attribute) {
+            this.name = name;
+            this.attribute = attribute;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long version = System.currentTimeMillis() * 1000;
+    // tombstones up to this version have been purged
+    private long purged = version;
+
+    private static String key(ObjectName name, String attribute) {
+        return name.getCanonicalName() + '/' + attribute;
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Whether changes since the cursor can be told, i.e. it was handed out by
+     * this instance and no removal after it has been forgotten.
+     */
+    synchronized boolean isValid(long cursor) {
+        return cursor >= purged && cursor <= version;
+    }
+
+    void record(Map<ObjectName, Map<String, Object>> values) {
+        record(values, System.currentTimeMillis());
+    }
+
+    synchronized void record(Map<ObjectName, Map<String, Object>> values, long now) {
+        for (Map.Entry<ObjectName, Map<String, Object>> e : values.entrySet()) {
+            for (Map.Entry<String, Object> v : e.getValue().entrySet()) {
+                Entry entry = entries.computeIfAbsent(key(e.getKey(), v.getKey()),
+                        k -> new Entry(e.getKey(), v.getKey()));
+                entry.recorded = now;
+                if (entry.version == 0 || entry.removed != 0 || !Objects.deepEquals(entry.value, v.getValue())) {
+                    entry.value = v.getValue();
+                    entry.removed = 0;
+                    entry.version = ++version;
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the attributes matching the pattern that went away as removed:
+     * those of MBeans no longer registered, and those their MBean no longer
+     * lists. Failing to read a value is not a removal.
+     *
+     * @param attributes
+     *            the attributes read, <code>null</code> for all.
+     * @param listed
+     *            the attributes listed by each MBean matching the pattern,
+     *            <code>null</code> for an MBean whose attributes cannot be
+     *            told.
+     */
+    void removeMissing(ObjectName pattern, Set<String> attributes, Map<ObjectName, Set<String>> listed) {
+        removeMissing(pattern, attributes, listed, System.currentTimeMillis());
+    }
+
+    synchronized void removeMissing(ObjectName pattern, Set<String> attributes, Map<ObjectName, Set<String>> listed,
+            long now) {
+        for (Iterator<Entry> i = entries.values().iterator(); i.hasNext();) {
+            Entry entry = i.next();
+            if (entry.removed != 0) {
+                if (now - entry.removed > TOMBSTONE_TTL) {
+                    purged = Math.max(purged, entry.version);
+                    i.remove();
+                }
+                continue;
+            }
+            if (now - entry.recorded > TOMBSTONE_TTL) {
+                // nobody reads it, and whether it went away since cannot be
+                // told: forget it, and any cursor that could miss its removal
+                purged = ++version;
+                i.remove();
+                continue;
+            }
+            if (!matches(entry, pattern, attributes)) {
+                continue;
+            }
+            boolean registered = listed.containsKey(entry.name);
+            Set<String> attrs = listed.get(entry.name);
+            if (!registered || (attrs != null && !attrs.contains(entry.attribute))) {
+                entry.value = null;
+                entry.removed = now;
+                entry.version = ++version;
+            }
+        }
+    }
+
+    /**
+     * The entries matching the pattern that changed or were removed after the
+     * cursor.
+     */
+    synchronized List<Entry> changedSince(ObjectName pattern, Set<String> attributes, long cursor) {
+        List<Entry> res = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.version > cursor && matches(entry, pattern, attributes)) {
+                Entry copy = new Entry(entry.name, entry.attribute);
+                copy.value = entry.value;
+                copy.version = entry.version;
+                copy.removed = entry.removed;
+                res.add(copy);
+            }
+        }
+        return res;
+    }
+
+    private static boolean matches(Entry entry, ObjectName pattern, Set<String> attributes) {
+        return (attributes == null || attributes.contains(entry.attribute)) && pattern.apply(entry.name);
+    }
+}
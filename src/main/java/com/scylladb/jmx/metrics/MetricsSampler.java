@@ -0,0 +1,133 @@
+package com.scylladb.jmx.metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
+import javax.management.IntrospectionException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Reads the attributes of many MBeans at once, each attribute once.
+ * <p>
+ * The attributes wanted from an MBean are read together, and the MBeans read
+ * in parallel, at most {@link #PARALLELISM} at a time.
+ */
+class MetricsSampler {
+    private static final Logger logger = Logger.getLogger(MetricsSampler.class.getName());
+
+    static final int PARALLELISM = Integer.getInteger("scylla.jmx.metrics_service.read_parallelism", 16);
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 30,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("metrics-read-%d").build());
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private final MBeanServer server;
+
+    MetricsSampler(MBeanServer server) {
+        this.server = server;
+    }
+
+    /**
+     * The MBeans currently matching a pattern, or the name itself if it is
+     * not a pattern.
+     */
+    Set<ObjectName> resolve(ObjectName pattern) {
+        return server.queryNames(pattern, null);
+    }
+
+    /**
+     * Reads the wanted attributes. MBeans that went away and attributes that
+     * cannot be read are left out.
+     */
+    Map<ObjectName, Map<String, Object>> read(Map<ObjectName, Set<String>> wanted) {
+        Map<ObjectName, Map<String, Object>> res = new HashMap<>(wanted.size() * 4 / 3 + 1);
+        if (wanted.size() == 1) {
+            Map.Entry<ObjectName, Set<String>> e = wanted.entrySet().iterator().next();
+            Map<String, Object> values = read(e.getKey(), e.getValue());
+            if (values != null) {
+                res.put(e.getKey(), values);
+            }
+            return res;
+        }
+        List<ObjectName> names = new ArrayList<>(wanted.keySet());
+        List<Callable<Map<String, Object>>> tasks = new ArrayList<>(names.size());
+        for (ObjectName name : names) {
+            Set<String> attributes = wanted.get(name);
+            tasks.add(() -> read(name, attributes));
+        }
+        try {
+            List<Future<Map<String, Object>>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); ++i) {
+                Map<String, Object> values = futures.get(i).get();
+                if (values != null) {
+                    res.put(names.get(i), values);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading metrics", e);
+        } catch (ExecutionException e) {
+            // read() does not throw
+            throw new IllegalStateException(e.getCause());
+        }
+        return res;
+    }
+
+    /**
+     * The readable attributes of an MBean, <code>null</code> if they cannot
+     * be told.
+     */
+    Set<String> attributes(ObjectName name) {
+        try {
+            Set<String> res = new TreeSet<>();
+            for (MBeanAttributeInfo info : server.getMBeanInfo(name).getAttributes()) {
+                if (info.isReadable()) {
+                    res.add(info.getName());
+                }
+            }
+            return res;
+        } catch (InstanceNotFoundException | IntrospectionException | ReflectionException e) {
+            return null;
+        }
+    }
+
+    Map<String, Object> read(ObjectName name, Set<String> attributes) {
+        try {
+            AttributeList list = server.getAttributes(name, attributes.toArray(new String[attributes.size()]));
+            Map<String, Object> values = new HashMap<>(list.size() * 4 / 3 + 1);
+            for (Attribute a : list.asList()) {
+                values.put(a.getName(), a.getValue());
+            }
+            return values;
+        } catch (InstanceNotFoundException e) {
+            return null;
+        } catch (ReflectionException | RuntimeException e) {
+            logger.log(Level.FINE, "Failed to read " + attributes + " of " + name, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,639 @@
+package com.scylladb.jmx.metrics;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.management.AttributeChangeNotification;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.scylladb.jmx.api.APIClient;
+import com.scylladb.jmx.utils.APIMBeanServer;
+import com.scylladb.jmx.utils.BoundedNotificationBroadcaster;
+
+public class MetricsService extends APIMBean implements MetricsServiceMBean, NotificationEmitter {
+    private static final Logger logger = Logger.getLogger(MetricsService.class.getName());
+
+    /** Name of the notification broadcaster, in metrics and configuration */
+    public static final String NOTIFICATIONS = "MetricsService";
+
+    static final long TICK = Long.getLong("scylla.jmx.metrics_service.tick_ms", 1000);
+    static final int MAX_SUBSCRIPTIONS = Integer.getInteger("scylla.jmx.metrics_service.max_subscriptions", 256);
+    static final long LEASE = Long.getLong("scylla.jmx.metrics_service.lease_ms", 5 * 60 * 1000);
+
+    private static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("metrics-service").build());
+
+    private static final String[] ITEM_NAMES = { "id", "pattern", "attributes", "interval", "condition", "compact",
+            "references" };
+    private static final String[] ITEM_DESCS = { "Subscription id", "ObjectName pattern", "Sampled attributes",
+            "Sampling interval (ms)", "Condition for sending a value", "One notification per interval",
+            "Number of subscribe calls sharing it" };
+    private static final OpenType<?>[] ITEM_TYPES = { SimpleType.LONG, SimpleType.STRING, SimpleType.STRING,
+            SimpleType.LONG, SimpleType.STRING, SimpleType.BOOLEAN, SimpleType.INTEGER };
+    private static final String TYPE_NAME = "Subscription";
+    private static final String ROW_DESC = "Metric subscription";
+
+    private static final CompositeType COMPOSITE_TYPE;
+    private static final TabularType TABULAR_TYPE;
+
+    static {
+        try {
+            COMPOSITE_TYPE = new CompositeType(TYPE_NAME, ROW_DESC, ITEM_NAMES, ITEM_DESCS, ITEM_TYPES);
+            TABULAR_TYPE = new TabularType(TYPE_NAME, ROW_DESC, COMPOSITE_TYPE, new String[] { "id" });
+        } catch (OpenDataException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static final String[] VALUE_ITEM_NAMES = { "name", "attribute", "type", "value" };
+    private static final String[] VALUE_ITEM_DESCS = { "ObjectName", "Attribute name", "Class of the value",
+            "Value" };
+    private static final OpenType<?>[] VALUE_ITEM_TYPES = { SimpleType.STRING, SimpleType.STRING,
+            SimpleType.STRING, SimpleType.STRING };
+    private static final String VALUE_TYPE_NAME = "AttributeValue";
+    private static final String VALUE_ROW_DESC = "Attribute value";
+
+    private static final CompositeType VALUE_COMPOSITE_TYPE;
+    private static final TabularType VALUE_TABULAR_TYPE;
+
+    static {
+        try {
+            VALUE_COMPOSITE_TYPE = new CompositeType(VALUE_TYPE_NAME, VALUE_ROW_DESC, VALUE_ITEM_NAMES,
+                    VALUE_ITEM_DESCS, VALUE_ITEM_TYPES);
+            VALUE_TABULAR_TYPE = new TabularType(VALUE_TYPE_NAME, VALUE_ROW_DESC, VALUE_COMPOSITE_TYPE,
+                    new String[] { "name", "attribute" });
+        } catch (OpenDataException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static final String[] DELTA_VALUE_ITEM_NAMES = { "name", "attribute", "type", "value", "removed" };
+    private static final String[] DELTA_VALUE_ITEM_DESCS = { "ObjectName", "Attribute name", "Class of the value",
+            "Value", "The attribute or its MBean went away" };
+    private static final OpenType<?>[] DELTA_VALUE_ITEM_TYPES = { SimpleType.STRING, SimpleType.STRING,
+            SimpleType.STRING, SimpleType.STRING, SimpleType.BOOLEAN };
+    private static final String[] DELTA_ITEM_NAMES = { "cursor", "full", "values" };
+    private static final String[] DELTA_ITEM_DESCS = { "Cursor to pass to the next read",
+            "The values are all the current values, not changes", "Changed values" };
+
+    private static final CompositeType DELTA_VALUE_COMPOSITE_TYPE;
+    private static final TabularType DELTA_VALUE_TABULAR_TYPE;
+    private static final CompositeType DELTA_COMPOSITE_TYPE;
+
+    static {
+        try {
+            DELTA_VALUE_COMPOSITE_TYPE = new CompositeType("AttributeChange", "Attribute change",
+                    DELTA_VALUE_ITEM_NAMES, DELTA_VALUE_ITEM_DESCS, DELTA_VALUE_ITEM_TYPES);
+            DELTA_VALUE_TABULAR_TYPE = new TabularType("AttributeChange", "Attribute change",
+                    DELTA_VALUE_COMPOSITE_TYPE, new String[] { "name", "attribute" });
+            DELTA_COMPOSITE_TYPE = new CompositeType("AttributeDelta", "Attribute changes since a cursor",
+                    DELTA_ITEM_NAMES, DELTA_ITEM_DESCS,
+                    new OpenType<?>[] { SimpleType.LONG, SimpleType.BOOLEAN, DELTA_VALUE_TABULAR_TYPE });
+        } catch (OpenDataException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static final String[] SAMPLE_ITEM_NAMES = { "subscription", "timestamp", "values" };
+    private static final String[] SAMPLE_ITEM_DESCS = { "Subscription id", "Sampling time (ms since epoch)",
+            "Sampled values" };
+
+    private static final CompositeType SAMPLE_COMPOSITE_TYPE;
+
+    static {
+        try {
+            SAMPLE_COMPOSITE_TYPE = new CompositeType("MetricsSample", "Values of a compact subscription",
+                    SAMPLE_ITEM_NAMES, SAMPLE_ITEM_DESCS,
+                    new OpenType<?>[] { SimpleType.LONG, SimpleType.LONG, VALUE_TABULAR_TYPE });
+        } catch (OpenDataException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Which sampled values to send.
+     */
+    static final class Condition {
+        private static final Pattern THRESHOLD = Pattern.compile("\\s*(<=|>=|<|>)\\s*(\\S+)\\s*");
+
+        private final String text;
+        private final String op;
+        private final double threshold;
+
+        private Condition(String text, String op, double threshold) {
+            this.text = text;
+            this.op = op;
+            this.threshold = threshold;
+        }
+
+        static Condition parse(String s) {
+            if (s == null || s.trim().isEmpty()) {
+                return new Condition("", null, 0);
+            }
+            if ("change".equalsIgnoreCase(s.trim())) {
+                return new Condition("change", "change", 0);
+            }
+            Matcher m = THRESHOLD.matcher(s);
+            if (m.matches()) {
+                try {
+                    double threshold = Double.parseDouble(m.group(2));
+                    return new Condition(m.group(1) + " " + threshold, m.group(1), threshold);
+                } catch (NumberFormatException e) {
+                }
+            }
+            throw new IllegalArgumentException("Invalid condition: " + s);
+        }
+
+        boolean test(Object prev, Object value) {
+            if (op == null) {
+                return true;
+            }
+            if (op.equals("change")) {
+                return !Objects.equals(prev, value);
+            }
+            if (!(value instanceof Number)) {
+                return false;
+            }
+            double v = ((Number) value).doubleValue();
+            switch (op) {
+            case "<":
+                return v < threshold;
+            case "<=":
+                return v <= threshold;
+            case ">":
+                return v > threshold;
+            default:
+                return v >= threshold;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private final class Subscription {
+        private final long id;
+        private final ObjectName pattern;
+        private final Set<String> attributes;
+        private final long interval;
+        private final Condition condition;
+        private final boolean compact;
+        private final String key;
+        private final Map<String, Object> sent = new HashMap<>();
+        private int references = 1;
+        private long next;
+        private long expires;
+
+        Subscription(long id, ObjectName pattern, Set<String> attributes, long interval, Condition condition,
+                boolean compact, String key) {
+            this.id = id;
+            this.pattern = pattern;
+            this.attributes = attributes;
+            this.interval = interval;
+            this.condition = condition;
+            this.compact = compact;
+            this.key = key;
+            renew();
+        }
+
+        void renew() {
+            expires = System.currentTimeMillis() + LEASE;
+        }
+
+        void push(long now, Set<ObjectName> names, Map<ObjectName, Map<String, Object>> values) {
+            TabularDataSupport changed = compact ? new TabularDataSupport(VALUE_TABULAR_TYPE) : null;
+            for (ObjectName name : names) {
+                Map<String, Object> v = values.get(name);
+                if (v == null) {
+                    continue;
+                }
+                for (String attribute : attributes) {
+                    if (!v.containsKey(attribute)) {
+                        continue;
+                    }
+                    Object value = v.get(attribute);
+                    String k = name.getCanonicalName() + '/' + attribute;
+                    Object prev = sent.get(k);
+                    if (!condition.test(prev, value)) {
+                        continue;
+                    }
+                    sent.put(k, value);
+                    if (compact) {
+                        changed.put(toCompositeData(name, attribute, value));
+                    } else {
+                        sendAttributeChange(this, name, now, attribute, prev, value);
+                    }
+                }
+            }
+            if (compact && (!changed.isEmpty() || condition.op == null)) {
+                try {
+                    sendNotification(SAMPLE, now, "Subscription " + id, new CompositeDataSupport(
+                            SAMPLE_COMPOSITE_TYPE, SAMPLE_ITEM_NAMES, new Object[] { id, now, changed }));
+                } catch (OpenDataException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+
+    private final NotificationBroadcasterSupport notificationBroadcasterSupport = new BoundedNotificationBroadcaster(
+            NOTIFICATIONS, MetricsService::coalescingKey,
+            new MBeanNotificationInfo(new String[] { AttributeChangeNotification.ATTRIBUTE_CHANGE },
+                    AttributeChangeNotification.class.getName(), "Sampled metric values"),
+            new MBeanNotificationInfo(new String[] { SAMPLE }, Notification.class.getName(),
+                    "Sampled metric values, one notification per interval"));
+    private final AtomicLong notificationSerialNumber = new AtomicLong();
+    private final List<NotificationListener> listeners = new ArrayList<>();
+
+    private final MetricVersions versions = new MetricVersions();
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, Subscription> subscriptions = new LinkedHashMap<>();
+    private final Map<String, Subscription> byKey = new HashMap<>();
+    private ScheduledFuture<?> sampler;
+
+    public MetricsService(APIClient client) {
+        super(client);
+    }
+
+    public void log(String str) {
+        logger.finest(str);
+    }
+
+    // a lagging listener only needs the latest value of an attribute
+    private static Object coalescingKey(Notification notification) {
+        if (!(notification instanceof AttributeChangeNotification)) {
+            return null;
+        }
+        AttributeChangeNotification n = (AttributeChangeNotification) notification;
+        return n.getUserData() + "/" + n.getSource() + "/" + n.getAttributeName();
+    }
+
+    @Override
+    public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+        notificationBroadcasterSupport.addNotificationListener(listener, filter, handback);
+        synchronized (listeners) {
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+        notificationBroadcasterSupport.removeNotificationListener(listener);
+        forget(listener);
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback)
+            throws ListenerNotFoundException {
+        notificationBroadcasterSupport.removeNotificationListener(listener, filter, handback);
+        synchronized (listeners) {
+            listeners.remove(listener);
+            dropIfUnobserved();
+        }
+    }
+
+    private void forget(NotificationListener listener) {
+        synchronized (listeners) {
+            listeners.removeIf(l -> l == listener);
+            dropIfUnobserved();
+        }
+    }
+
+    // nobody receives the values anymore. Remote clients share the listener
+    // of the connector, so this only covers in-process ones; the others are
+    // covered by the lease.
+    private void dropIfUnobserved() {
+        if (listeners.isEmpty()) {
+            synchronized (this) {
+                subscriptions.clear();
+                byKey.clear();
+                stop();
+            }
+        }
+    }
+
+    @Override
+    public MBeanNotificationInfo[] getNotificationInfo() {
+        return notificationBroadcasterSupport.getNotificationInfo();
+    }
+
+    private void sendAttributeChange(Subscription s, ObjectName source, long now, String attribute, Object prev,
+            Object value) {
+        Notification notification = new AttributeChangeNotification(source,
+                notificationSerialNumber.incrementAndGet(), now, "Subscription " + s.id, attribute,
+                value == null ? Object.class.getName() : value.getClass().getName(), prev, value);
+        notification.setUserData(s.id);
+        notificationBroadcasterSupport.sendNotification(notification);
+    }
+
+    private void sendNotification(String type, long now, String message, Object userData) {
+        Notification notification = new Notification(type, getBoundName(), notificationSerialNumber.incrementAndGet(),
+                now, message);
+        notification.setUserData(userData);
+        notificationBroadcasterSupport.sendNotification(notification);
+    }
+
+    @Override
+    public synchronized long subscribe(String pattern, List<String> attributes, long interval, String condition,
+            boolean compact) {
+        log(" subscribe(String pattern, List<String> attributes, long interval, String condition, boolean compact)");
+        ObjectName name = toObjectName(pattern);
+        if (attributes == null || attributes.isEmpty()) {
+            throw new IllegalArgumentException("No attributes to sample");
+        }
+        Set<String> attrs = new TreeSet<>(attributes);
+        long ticks = Math.max(1, (interval + TICK - 1) / TICK);
+        Condition c = Condition.parse(condition);
+        String key = name.getCanonicalName() + attrs + ticks + "/" + c + "/" + compact;
+
+        Subscription s = byKey.get(key);
+        if (s != null) {
+            s.references++;
+            s.renew();
+            return s.id;
+        }
+        if (subscriptions.size() >= MAX_SUBSCRIPTIONS) {
+            throw new IllegalStateException("Too many subscriptions (" + MAX_SUBSCRIPTIONS + ")");
+        }
+        s = new Subscription(ids.incrementAndGet(), name, attrs, ticks * TICK, c, compact, key);
+        subscriptions.put(s.id, s);
+        byKey.put(key, s);
+        start();
+        return s.id;
+    }
+
+    @Override
+    public synchronized void renew(long id) {
+        log(" renew(long id)");
+        Subscription s = subscriptions.get(id);
+        if (s == null) {
+            throw new IllegalArgumentException("No subscription " + id);
+        }
+        s.renew();
+    }
+
+    @Override
+    public synchronized void unsubscribe(long id) {
+        log(" unsubscribe(long id)");
+        Subscription s = subscriptions.get(id);
+        if (s == null) {
+            throw new IllegalArgumentException("No subscription " + id);
+        }
+        if (--s.references == 0) {
+            remove(s);
+        }
+    }
+
+    private void remove(Subscription s) {
+        subscriptions.remove(s.id);
+        byKey.remove(s.key);
+        if (subscriptions.isEmpty()) {
+            stop();
+        }
+    }
+
+    @Override
+    public long getLease() {
+        log(" getLease()");
+        return LEASE;
+    }
+
+    @Override
+    public synchronized TabularData getSubscriptions() {
+        log(" getSubscriptions()");
+        TabularDataSupport res = new TabularDataSupport(TABULAR_TYPE);
+        for (Subscription s : subscriptions.values()) {
+            try {
+                res.put(new CompositeDataSupport(COMPOSITE_TYPE, ITEM_NAMES, new Object[] { s.id,
+                        s.pattern.getCanonicalName(), String.join(",", s.attributes), s.interval,
+                        s.condition.toString(), s.compact, s.references }));
+            } catch (OpenDataException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public TabularData readAttributes(String pattern, List<String> attributes) {
+        log(" readAttributes(String pattern, List<String> attributes)");
+        if (server == null) {
+            throw new IllegalStateException("Not registered");
+        }
+        MetricsSampler sampler = newSampler();
+        Set<String> attrs = attributes == null || attributes.isEmpty() ? null : new TreeSet<>(attributes);
+        Map<ObjectName, Set<String>> wanted = new HashMap<>();
+        for (ObjectName name : sampler.resolve(toObjectName(pattern))) {
+            Set<String> a = attrs == null ? sampler.attributes(name) : attrs;
+            if (a != null) {
+                wanted.put(name, a);
+            }
+        }
+        Map<ObjectName, Map<String, Object>> values = sampler.read(wanted);
+        TabularDataSupport res = new TabularDataSupport(VALUE_TABULAR_TYPE);
+        for (Map.Entry<ObjectName, Map<String, Object>> e : values.entrySet()) {
+            for (Map.Entry<String, Object> v : e.getValue().entrySet()) {
+                res.put(toCompositeData(e.getKey(), v.getKey(), v.getValue()));
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public CompositeData readChangedAttributes(String pattern, List<String> attributes, long cursor) {
+        log(" readChangedAttributes(String pattern, List<String> attributes, long cursor)");
+        if (server == null) {
+            throw new IllegalStateException("Not registered");
+        }
+        ObjectName name = toObjectName(pattern);
+        Set<String> attrs = attributes == null || attributes.isEmpty() ? null : new TreeSet<>(attributes);
+        MetricsSampler sampler = newSampler();
+        Map<ObjectName, Set<String>> listed = new HashMap<>();
+        Map<ObjectName, Set<String>> wanted = new HashMap<>();
+        for (ObjectName n : sampler.resolve(name)) {
+            Set<String> l = sampler.attributes(n);
+            listed.put(n, l);
+            if (attrs != null) {
+                wanted.put(n, attrs);
+            } else if (l != null) {
+                wanted.put(n, l);
+            }
+        }
+        Map<ObjectName, Map<String, Object>> values = sampler.read(wanted);
+
+        List<MetricVersions.Entry> changes;
+        long next;
+        boolean full;
+        synchronized (versions) {
+            versions.record(values);
+            versions.removeMissing(name, attrs, listed);
+            full = !versions.isValid(cursor);
+            changes = versions.changedSince(name, attrs, full ? Long.MIN_VALUE : cursor);
+            next = versions.getVersion();
+        }
+
+        TabularDataSupport res = new TabularDataSupport(DELTA_VALUE_TABULAR_TYPE);
+        for (MetricVersions.Entry e : changes) {
+            if (full && e.removed != 0) {
+                continue;
+            }
+            try {
+                res.put(new CompositeDataSupport(DELTA_VALUE_COMPOSITE_TYPE, DELTA_VALUE_ITEM_NAMES,
+                        new Object[] { e.name.getCanonicalName(), e.attribute,
+                                e.value == null ? null : e.value.getClass().getTypeName(), toString(e.value),
+                                e.removed != 0 }));
+            } catch (OpenDataException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        try {
+            return new CompositeDataSupport(DELTA_COMPOSITE_TYPE, DELTA_ITEM_NAMES,
+                    new Object[] { next, full, res });
+        } catch (OpenDataException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static CompositeData toCompositeData(ObjectName name, String attribute, Object value) {
+        try {
+            return new CompositeDataSupport(VALUE_COMPOSITE_TYPE, VALUE_ITEM_NAMES,
+                    new Object[] { name.getCanonicalName(), attribute,
+                            value == null ? null : value.getClass().getTypeName(), toString(value) });
+        } catch (OpenDataException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toString(Object value) {
+        if (value == null || !value.getClass().isArray()) {
+            return value == null ? null : value.toString();
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0, n = Array.getLength(value); i < n; ++i) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(Array.get(value, i));
+        }
+        return sb.toString();
+    }
+
+    private static ObjectName toObjectName(String pattern) {
+        try {
+            return new ObjectName(pattern);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid ObjectName pattern: " + pattern, e);
+        }
+    }
+
+    /**
+     * A sampler reading through the wrapping platform server rather than the
+     * one we are registered in, so that the MBeans of tables and streaming
+     * peers are (un)registered before the pattern is resolved, as for any
+     * remote query.
+     */
+    private MetricsSampler newSampler() {
+        MBeanServer platform = ManagementFactory.getPlatformMBeanServer();
+        return new MetricsSampler(platform instanceof APIMBeanServer ? platform : server);
+    }
+
+    private void start() {
+        if (sampler == null) {
+            sampler = executor.scheduleAtFixedRate(this::sample, TICK, TICK, MILLISECONDS);
+        }
+    }
+
+    private void stop() {
+        if (sampler != null) {
+            sampler.cancel(false);
+            sampler = null;
+        }
+    }
+
+    /**
+     * Samples everything wanted by the subscriptions now due, once.
+     */
+    private void sample() {
+        long now = System.currentTimeMillis();
+        List<Subscription> due = new ArrayList<>();
+        synchronized (this) {
+            for (Subscription s : new ArrayList<>(subscriptions.values())) {
+                if (now >= s.expires) {
+                    logger.fine("Subscription " + s.id + " expired");
+                    remove(s);
+                    continue;
+                }
+                if (now >= s.next) {
+                    due.add(s);
+                    s.next = Math.max(s.next + s.interval, now + s.interval - TICK / 2);
+                }
+            }
+        }
+        if (due.isEmpty() || server == null) {
+            return;
+        }
+        try {
+            MetricsSampler sampler = newSampler();
+            Map<ObjectName, Set<ObjectName>> resolved = new HashMap<>();
+            Map<ObjectName, Set<String>> wanted = new HashMap<>();
+            for (Subscription s : due) {
+                Set<ObjectName> names = resolved.computeIfAbsent(s.pattern, sampler::resolve);
+                for (ObjectName name : names) {
+                    wanted.computeIfAbsent(name, n -> new HashSet<>()).addAll(s.attributes);
+                }
+            }
+            Map<ObjectName, Map<String, Object>> values = sampler.read(wanted);
+            for (Subscription s : due) {
+                synchronized (this) {
+                    if (subscriptions.get(s.id) != s) {
+                        continue;
+                    }
+                }
+                s.push(now, resolved.get(s.pattern), values);
+            }
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Failed to sample metrics", e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.scylladb.jmx.metrics;
+
+import java.util.List;
+
+import javax.management.AttributeChangeNotification;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+/**
+ * Pushes metric values to clients instead of having them poll.
+ * <p>
+ * A subscription names the attributes to sample from the MBeans matching an
+ * ObjectName pattern, and how often. All the subscriptions due at the same
+ * time are served from a single sampling pass, each attribute being read
+ * once however many subscriptions want it, and identical subscriptions are
+ * shared.
+ * <p>
+ * The values of a subscription are sent either as one
+ * {@link AttributeChangeNotification} per value, with the sampled MBean as
+ * source, or, for compact subscriptions, as a single {@link #SAMPLE}
+ * notification per interval. Every listener receives the notifications of
+ * every subscription, so clients must filter on the subscription id, the
+ * user data of an {@link AttributeChangeNotification} and the
+ * "subscription" item of a {@link #SAMPLE}.
+ * <p>
+ * Subscriptions are leased: one not renewed, with {@link #renew} or an
+ * identical {@link #subscribe}, within {@link #getLease} ms is dropped, so
+ * that those of clients that went away without unsubscribing do not keep
+ * being sampled.
+ * <p>
+ * The values can also be read in bulk with {@link #readAttributes}, or only
+ * those that changed since a previous read with
+ * {@link #readChangedAttributes}.
+ */
+public interface MetricsServiceMBean {
+    public static final String OBJECT_NAME = "com.scylladb.jmx:type=MetricsService";
+
+    /**
+     * The values of a compact subscription. The user data is a composite
+     * holding the subscription id ("subscription"), the sampling time
+     * ("timestamp") and the values ("values"), a table with the same rows as
+     * {@link #readAttributes}.
+     */
+    public static final String SAMPLE = "metrics.sample";
+
+    /**
+     * Subscribes to the given attributes of the MBeans matching the pattern.
+     *
+     * @param interval
+     *            sampling interval in ms, rounded up to the sampling tick.
+     * @param condition
+     *            which values to send: all of them each interval if empty,
+     *            only those that changed since last sent if "change", or
+     *            those satisfying a threshold, written as "&gt; 100", "&lt;=
+     *            0.5" etc.
+     * @param compact
+     *            send one notification per interval rather than one per
+     *            value.
+     * @return the subscription id, the same for identical subscriptions.
+     */
+    public long subscribe(String pattern, List<String> attributes, long interval, String condition, boolean compact);
+
+    /**
+     * Extends the lease of the subscription by {@link #getLease} ms from now.
+     */
+    public void renew(long id);
+
+    /**
+     * How long a subscription lives without being renewed, in ms.
+     */
+    public long getLease();
+
+    /**
+     * Drops one reference to the subscription, removing it with the last.
+     */
+    public void unsubscribe(long id);
+
+    public TabularData getSubscriptions();
+
+    /**
+     * Reads the given attributes (all if none) of every MBean matching the
+     * pattern in one call. The MBeans are read in parallel.
+     *
+     * @return one row per value, with the ObjectName, the attribute, the
+     *         value type and the value as a string. Arrays are written as
+     *         comma separated lists.
+     */
+    public TabularData readAttributes(String pattern, List<String> attributes);
+
+    /**
+     * Like {@link #readAttributes}, but only returns the values that changed
+     * since the read that returned the cursor.
+     *
+     * @param cursor
+     *            the cursor returned by the previous call, or 0 on the first.
+     * @return a composite with the new cursor ("cursor") and the changed
+     *         values ("values"), including rows flagged "removed" for
+     *         attributes or MBeans that went away. If the changes since the
+     *         cursor cannot be told, e.g. after a restart of the proxy, all
+     *         current values are returned and "full" is set.
+     */
+    public CompositeData readChangedAttributes(String pattern, List<String> attributes, long cursor);
+}
@@ -0,0 +1,310 @@
+package com.scylladb.jmx.utils;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanNotificationInfo;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A {@link NotificationBroadcasterSupport} that does not deliver
+ * notifications on the sending thread.
+ * <p>
+ * Every listener gets a queue of at most {@link #QUEUE_SIZE} notifications,
+ * drained in order by a shared pool of dispatch threads, so that a slow or
+ * stalled client only delays itself. What happens to a full queue is decided
+ * by the {@link OverflowPolicy} of the broadcaster, read from
+ * <code>scylla.jmx.notifications.&lt;name&gt;.overflow_policy</code>, then
+ * <code>scylla.jmx.notifications.overflow_policy</code>.
+ * <p>
+ * The isolation only holds between listeners registered in this process. The
+ * RMI connector registers a single listener per MBean, which appends to the
+ * notification buffer all remote clients fetch from: remote clients share
+ * one queue here, which only keeps the broadcaster from being held up by
+ * that buffer.
+ * For the same reason listeners are never removed on overflow: that would
+ * silently stop the notifications of every remote client.
+ */
+public class BoundedNotificationBroadcaster extends NotificationBroadcasterSupport {
+    private static final Logger logger = Logger.getLogger(BoundedNotificationBroadcaster.class.getName());
+
+    static final int QUEUE_SIZE = Integer.getInteger("scylla.jmx.notifications.queue_size", 1000);
+    static final int THREADS = Integer.getInteger("scylla.jmx.notifications.threads", 4);
+    // notifications delivered to a listener before letting others run
+    static final int BATCH_SIZE = 100;
+
+    public enum OverflowPolicy {
+        /**
+         * Replace a queued notification with the same coalescing key (e.g.
+         * progress of the same file) with the new one, otherwise drop the
+         * oldest.
+         */
+        COALESCE,
+        /** Drop the oldest queued notification */
+        DROP_OLDEST,
+    }
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("notification-%d").build());
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Dispatch counters of a broadcaster.
+     */
+    public static final class Stats {
+        private final AtomicLong queued = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+
+        /** Notifications waiting for delivery, over all listeners */
+        public long getQueueDepth() {
+            return queued.get();
+        }
+
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        public long getCoalesced() {
+            return coalesced.get();
+        }
+    }
+
+    private static final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public static Stats getStats(String name) {
+        return stats.computeIfAbsent(name, n -> new Stats());
+    }
+
+    private static OverflowPolicy policy(String name) {
+        String s = System.getProperty("scylla.jmx.notifications." + name + ".overflow_policy",
+                System.getProperty("scylla.jmx.notifications.overflow_policy", OverflowPolicy.COALESCE.name()));
+        try {
+            return OverflowPolicy.valueOf(s.toUpperCase(Locale.US));
+        } catch (IllegalArgumentException e) {
+            logger.warning("Unknown notification overflow policy " + s + ", using " + OverflowPolicy.COALESCE);
+            return OverflowPolicy.COALESCE;
+        }
+    }
+
+    private static final class Registration {
+        private final NotificationListener listener;
+        private final Object handback;
+
+        Registration(NotificationListener listener, Object handback) {
+            this.listener = listener;
+            this.handback = handback;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Registration)) {
+                return false;
+            }
+            Registration r = (Registration) o;
+            return listener == r.listener && handback == r.handback;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(listener) * 31 + System.identityHashCode(handback);
+        }
+    }
+
+    private final class Dispatch implements Runnable {
+        private final Registration registration;
+        private final LinkedList<Notification> queue = new LinkedList<>();
+        private int count = 1;
+        private boolean scheduled;
+        private boolean closed;
+
+        Dispatch(Registration registration) {
+            this.registration = registration;
+        }
+
+        void offer(Notification notification) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (queue.size() >= QUEUE_SIZE && !makeRoom(notification)) {
+                    return;
+                }
+                queue.add(notification);
+                counters.queued.incrementAndGet();
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            executor.execute(this);
+        }
+
+        /**
+         * Applies the overflow policy.
+         *
+         * @return whether the notification should still be queued.
+         */
+        private boolean makeRoom(Notification notification) {
+            if (overflowPolicy == OverflowPolicy.COALESCE && coalesce(notification)) {
+                return false;
+            }
+            queue.removeFirst();
+            counters.queued.decrementAndGet();
+            counters.dropped.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * Replaces the queued notification with the same coalescing key, if
+         * any, with the given one.
+         */
+        private boolean coalesce(Notification notification) {
+            Object key = coalescingKey.apply(notification);
+            if (key == null) {
+                return false;
+            }
+            for (ListIterator<Notification> i = queue.listIterator(); i.hasNext();) {
+                if (key.equals(coalescingKey.apply(i.next()))) {
+                    i.set(notification);
+                    counters.coalesced.incrementAndGet();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // called with the lock held
+        private void close() {
+            closed = true;
+            counters.queued.addAndGet(-queue.size());
+            queue.clear();
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < BATCH_SIZE; ++i) {
+                Notification notification;
+                synchronized (this) {
+                    notification = queue.poll();
+                    if (notification == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                counters.queued.decrementAndGet();
+                try {
+                    registration.listener.handleNotification(notification, registration.handback);
+                } catch (Exception e) {
+                    logger.log(Level.FINE, "Notification listener failed", e);
+                }
+            }
+            executor.execute(this);
+        }
+    }
+
+    private final Stats counters;
+    private final OverflowPolicy overflowPolicy;
+    private final Function<Notification, Object> coalescingKey;
+    private final Map<Registration, Dispatch> dispatches = new HashMap<>();
+
+    /**
+     * @param name
+     *            names the broadcaster in metrics and configuration
+     * @param coalescingKey
+     *            returns, for notifications superseded by later ones with the
+     *            same key, that key, and <code>null</code> for all others. May
+     *            be <code>null</code> if nothing can be coalesced.
+     */
+    public BoundedNotificationBroadcaster(String name, Function<Notification, Object> coalescingKey,
+            MBeanNotificationInfo... info) {
+        super(info);
+        this.counters = getStats(name);
+        this.overflowPolicy = policy(name);
+        this.coalescingKey = coalescingKey != null ? coalescingKey : n -> null;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    @Override
+    public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+        Objects.requireNonNull(listener);
+        Registration r = new Registration(listener, handback);
+        synchronized (dispatches) {
+            Dispatch d = dispatches.get(r);
+            if (d == null) {
+                dispatches.put(r, new Dispatch(r));
+            } else {
+                d.count++;
+            }
+        }
+        super.addNotificationListener(listener, filter, handback);
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+        super.removeNotificationListener(listener);
+        synchronized (dispatches) {
+            dispatches.values().removeIf(d -> {
+                if (d.registration.listener != listener) {
+                    return false;
+                }
+                synchronized (d) {
+                    d.close();
+                }
+                return true;
+            });
+        }
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback)
+            throws ListenerNotFoundException {
+        super.removeNotificationListener(listener, filter, handback);
+        synchronized (dispatches) {
+            Registration r = new Registration(listener, handback);
+            Dispatch d = dispatches.get(r);
+            if (d != null && --d.count == 0) {
+                dispatches.remove(r);
+                synchronized (d) {
+                    d.close();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void handleNotification(NotificationListener listener, Notification notification, Object handback) {
+        Dispatch d;
+        synchronized (dispatches) {
+            d = dispatches.get(new Registration(listener, handback));
+        }
+        if (d != null) {
+            d.offer(notification);
+        }
+    }
+}
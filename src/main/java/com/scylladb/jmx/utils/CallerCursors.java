@@ -0,0 +1,53 @@
+package com.scylladb.jmx.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per client "last seen" values, for attributes reporting the change since
+ * the previous read.
+ * <p>
+ * JMX does not tell the server which connection an operation comes from, so
+ * clients identify themselves with a token of their choosing, e.g. a UUID
+ * drawn once per client instance. Clients passing the same token, or none,
+ * share a cursor. Cursors not used for {@link #EXPIRY} ms are dropped.
+ */
+public class CallerCursors<T> {
+    static final long EXPIRY = Long.getLong("scylla.jmx.cursor.expiry_ms", 60 * 60 * 1000);
+
+    private static final class Cursor<T> {
+        private final AtomicReference<T> value = new AtomicReference<>();
+        private volatile long lastUsed;
+    }
+
+    private final Map<String, Cursor<T>> cursors = new ConcurrentHashMap<>();
+    private volatile long lastPurge = System.currentTimeMillis();
+
+    /**
+     * Records <code>current</code> as the value last seen by the client for
+     * the given key.
+     *
+     * @param client
+     *            the token of the client, <code>null</code> for the cursor
+     *            shared by the clients not passing one.
+     * @return the value previously seen, or <code>null</code> on the first
+     *         call.
+     */
+    public T swap(String client, String key, T current) {
+        long now = System.currentTimeMillis();
+        purge(now);
+        Cursor<T> cursor = cursors.computeIfAbsent((client == null ? "" : client) + "/" + key,
+                k -> new Cursor<T>());
+        cursor.lastUsed = now;
+        return cursor.value.getAndSet(current);
+    }
+
+    private void purge(long now) {
+        if (now - lastPurge < EXPIRY) {
+            return;
+        }
+        lastPurge = now;
+        cursors.values().removeIf(c -> now - c.lastUsed > EXPIRY);
+    }
+}
@@ -220,11 +220,9 @@ public class ColumnFamilyStore extends MetricsMBean implements ColumnFamilyStore
 			@Override
 			protected void doCheck(APIClient client, JmxMBeanServer server, EnumSet<RegistrationMode> mode)
 					throws OperationsException {
-				JsonArray mbeans = client.getJsonArray("/column_family/");
 				Set<ObjectName> all = new HashSet<ObjectName>();
-				for (int i = 0; i < mbeans.size(); i++) {
-					JsonObject mbean = mbeans.getJsonObject(i);
-					all.add(getName(mbean.getString("type"), mbean.getString("ks"), mbean.getString("cf")));
+				for (SchemaCatalog.Table table : SchemaCatalog.getInstance(client).getSchema().getTables()) {
+					all.add(getName(table.getType(), table.getKeyspace(), table.getName()));
 				}
 				checkRegistration(server, all, mode,
 						n -> TYPE_NAMES.contains(n.getKeyProperty("type")), n -> new ColumnFamilyStore(client, n));
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.db;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import com.scylladb.jmx.api.APIClient;
+
+/**
+ * Proxy side copy of the schema: keyspaces and tables.
+ * <p>
+ * The schema is held as an immutable {@link Schema} snapshot, shared by all
+ * MBeans needing it. It is refetched when the schema version of the node
+ * changes, which is checked at most once per {@link #VALIDATE_INTERVAL} ms,
+ * and after {@link #MAX_AGE} ms regardless. The schema version read for the
+ * check is shared with the other caches keyed on it, see
+ * {@link #getSchemaVersion}.
+ */
+public class SchemaCatalog {
+    private static final Logger logger = Logger.getLogger(SchemaCatalog.class.getName());
+
+    static final long VALIDATE_INTERVAL = Long.getLong("scylla.jmx.schema.validate_interval_ms", 1000);
+    static final long MAX_AGE = Long.getLong("scylla.jmx.schema.max_age_ms", 60000);
+
+    private static final Map<APIClient, SchemaCatalog> instances = new WeakHashMap<>();
+
+    public static synchronized SchemaCatalog getInstance(APIClient client) {
+        return instances.computeIfAbsent(client, SchemaCatalog::new);
+    }
+
+    public static final class Table {
+        private final String keyspace;
+        private final String name;
+        private final String type;
+
+        Table(String keyspace, String name, String type) {
+            this.keyspace = keyspace;
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getKeyspace() {
+            return keyspace;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The MBean type of the table, i.e. "ColumnFamilies" or
+         * "IndexColumnFamilies".
+         */
+        public String getType() {
+            return type;
+        }
+    }
+
+    /**
+     * The schema at a given schema version.
+     */
+    public static final class Schema {
+        private final String version;
+        private final long created;
+        private volatile long validated;
+        private final List<String> keyspaces;
+        private final List<String> nonSystemKeyspaces;
+        private final List<String> nonLocalStrategyKeyspaces;
+        private final List<Table> tables;
+        private final Map<String, Set<String>> tablesPerKeyspace;
+
+        Schema(String version, long now, List<String> keyspaces, List<String> nonSystemKeyspaces,
+                List<String> nonLocalStrategyKeyspaces, List<Table> tables) {
+            this.version = version;
+            this.created = now;
+            this.validated = now;
+            this.keyspaces = unmodifiableList(keyspaces);
+            this.nonSystemKeyspaces = unmodifiableList(nonSystemKeyspaces);
+            this.nonLocalStrategyKeyspaces = unmodifiableList(nonLocalStrategyKeyspaces);
+            this.tables = unmodifiableList(tables);
+            Map<String, Set<String>> res = new HashMap<>();
+            for (Table t : tables) {
+                res.computeIfAbsent(t.keyspace, ks -> new HashSet<>()).add(t.name);
+            }
+            res.replaceAll((ks, cfs) -> unmodifiableSet(cfs));
+            this.tablesPerKeyspace = unmodifiableMap(res);
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public List<String> getKeyspaces() {
+            return keyspaces;
+        }
+
+        public List<String> getNonSystemKeyspaces() {
+            return nonSystemKeyspaces;
+        }
+
+        public List<String> getNonLocalStrategyKeyspaces() {
+            return nonLocalStrategyKeyspaces;
+        }
+
+        public List<Table> getTables() {
+            return tables;
+        }
+
+        public Map<String, Set<String>> getTablesPerKeyspace() {
+            return tablesPerKeyspace;
+        }
+
+        public int getNumberOfTables() {
+            return tables.size();
+        }
+    }
+
+    private final APIClient client;
+    private volatile Schema current;
+    private volatile String version;
+    private volatile long versionRead;
+
+    private SchemaCatalog(APIClient client) {
+        this.client = client;
+    }
+
+    private List<String> getKeyspaces(String type) {
+        MultivaluedMap<String, String> queryParams = null;
+        if (type != null) {
+            queryParams = new MultivaluedHashMap<String, String>();
+            queryParams.add("type", type);
+        }
+        return new ArrayList<>(client.getListStrValue("/storage_service/keyspaces", queryParams));
+    }
+
+    private Schema fetch(String version, long now) {
+        JsonArray mbeans = client.getJsonArray("/column_family/");
+        List<Table> tables = new ArrayList<>(mbeans.size());
+        for (int i = 0; i < mbeans.size(); i++) {
+            JsonObject mbean = mbeans.getJsonObject(i);
+            tables.add(new Table(mbean.getString("ks"), mbean.getString("cf"), mbean.getString("type")));
+        }
+        return new Schema(version, now, getKeyspaces(null), getKeyspaces("user"),
+                getKeyspaces("non_local_strategy"), tables);
+    }
+
+    /**
+     * The schema version of the node, read at most once per
+     * {@link #VALIDATE_INTERVAL} ms.
+     */
+    public String getSchemaVersion() {
+        if (System.currentTimeMillis() - versionRead < VALIDATE_INTERVAL) {
+            return version;
+        }
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now - versionRead >= VALIDATE_INTERVAL) {
+                version = client.getStringValue("/storage_service/schema_version");
+                versionRead = now;
+            }
+            return version;
+        }
+    }
+
+    /**
+     * The current schema.
+     */
+    public Schema getSchema() {
+        Schema s = current;
+        long now = System.currentTimeMillis();
+        if (s != null && now - s.validated < VALIDATE_INTERVAL) {
+            return s;
+        }
+        synchronized (this) {
+            s = current;
+            now = System.currentTimeMillis();
+            if (s != null && now - s.validated < VALIDATE_INTERVAL) {
+                return s;
+            }
+            String version = getSchemaVersion();
+            if (s != null && Objects.equals(version, s.version) && now - s.created < MAX_AGE) {
+                s.validated = now;
+                return s;
+            }
+            if (s != null && !Objects.equals(version, s.version)) {
+                logger.fine("Schema version changed, refetching schema");
+            }
+            s = fetch(version, now);
+            current = s;
+            return s;
+        }
+    }
+
+    /**
+     * Drops the current schema. The next access will refetch it.
+     */
+    public synchronized void invalidate() {
+        current = null;
+        versionRead = 0;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.TabularData;
+
+import org.apache.cassandra.db.compaction.CompactionHistoryTabularData.Row;
+
+import com.scylladb.jmx.api.APIClient;
+
+/**
+ * Parsed compaction history, refreshed at most every {@link #TTL} ms.
+ * <p>
+ * History rows never change once written, so on refresh only rows with an
+ * id we have not seen before are parsed; rows gone from the server (expired)
+ * are dropped. The full {@link TabularData} is kept until the set of rows
+ * changes.
+ */
+class CompactionHistoryCache {
+    static final long TTL = Long.getLong("scylla.jmx.compaction.history_ttl_ms", 10000);
+
+    // newest first
+    private static final Comparator<Row> ORDER = Comparator.comparingLong((Row r) -> r.compactedAt).reversed()
+            .thenComparing(r -> r.id);
+
+    private final APIClient client;
+    private Map<String, Row> rows = new HashMap<>();
+    private List<Row> sorted = Collections.emptyList();
+    private TabularData table;
+    private long lastRefresh;
+
+    CompactionHistoryCache(APIClient client) {
+        this.client = client;
+    }
+
+    private void refresh() {
+        long now = System.currentTimeMillis();
+        if (lastRefresh != 0 && now - lastRefresh < TTL) {
+            return;
+        }
+        JsonArray arr = client.getJsonArray("/compaction_manager/compaction_history");
+        Set<String> ids = new HashSet<>(arr.size() * 4 / 3 + 1);
+        boolean changed = false;
+        for (int i = 0; i < arr.size(); i++) {
+            JsonObject obj = arr.getJsonObject(i);
+            String id = obj.getString("id");
+            ids.add(id);
+            if (!rows.containsKey(id)) {
+                rows.put(id, Row.from(obj));
+                changed = true;
+            }
+        }
+        if (rows.keySet().retainAll(ids)) {
+            changed = true;
+        }
+        if (changed || lastRefresh == 0) {
+            List<Row> list = new ArrayList<>(rows.values());
+            list.sort(ORDER);
+            sorted = list;
+            table = null;
+        }
+        lastRefresh = now;
+    }
+
+    synchronized TabularData getHistory() throws OpenDataException {
+        refresh();
+        if (table == null) {
+            table = CompactionHistoryTabularData.from(sorted);
+        }
+        return table;
+    }
+
+    /**
+     * The matching rows, newest first, skipping <code>offset</code> rows and
+     * returning at most <code>limit</code> (all if not positive).
+     */
+    synchronized TabularData getHistory(Predicate<Row> filter, int offset, int limit) throws OpenDataException {
+        refresh();
+        List<Row> res = new ArrayList<>();
+        int skipped = 0;
+        for (Row row : sorted) {
+            if (!filter.test(row)) {
+                continue;
+            }
+            if (skipped++ < offset) {
+                continue;
+            }
+            res.add(row);
+            if (limit > 0 && res.size() == limit) {
+                break;
+            }
+        }
+        return CompactionHistoryTabularData.from(res);
+    }
+}
@@ -22,6 +22,9 @@
  */
 package org.apache.cassandra.db.compaction;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.management.openmbean.CompositeDataSupport;
@@ -65,10 +68,30 @@ public class CompactionHistoryTabularData {
         }
     }
 
-    public static TabularData from(JsonArray resultSet) throws OpenDataException {
-        TabularDataSupport result = new TabularDataSupport(TABULAR_TYPE);
-        for (int i = 0; i < resultSet.size(); i++) {
-            JsonObject row = resultSet.getJsonObject(i);
+    /**
+     * A parsed compaction history row.
+     */
+    public static final class Row {
+        public final String id;
+        public final String keyspace;
+        public final String table;
+        public final long compactedAt;
+        public final long bytesIn;
+        public final long bytesOut;
+        public final String rowsMerged;
+
+        Row(String id, String keyspace, String table, long compactedAt, long bytesIn, long bytesOut,
+                String rowsMerged) {
+            this.id = id;
+            this.keyspace = keyspace;
+            this.table = table;
+            this.compactedAt = compactedAt;
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+            this.rowsMerged = rowsMerged;
+        }
+
+        public static Row from(JsonObject row) {
             String id = row.getString("id");
             String ksName = row.getString("ks");
             String cfName = row.getString("cf");
@@ -90,8 +113,23 @@ public class CompactionHistoryTabularData {
                 }
                 sb.append('}');
             }
-            result.put(new CompositeDataSupport(COMPOSITE_TYPE, ITEM_NAMES,
-                    new Object[] { id, ksName, cfName, compactedAt, bytesIn, bytesOut, sb.toString() }));
+            return new Row(id, ksName, cfName, compactedAt, bytesIn, bytesOut, sb.toString());
+        }
+    }
+
+    public static TabularData from(JsonArray resultSet) throws OpenDataException {
+        List<Row> rows = new ArrayList<>(resultSet.size());
+        for (int i = 0; i < resultSet.size(); i++) {
+            rows.add(Row.from(resultSet.getJsonObject(i)));
+        }
+        return from(rows);
+    }
+
+    public static TabularData from(Iterable<Row> rows) throws OpenDataException {
+        TabularDataSupport result = new TabularDataSupport(TABULAR_TYPE);
+        for (Row row : rows) {
+            result.put(new CompositeDataSupport(COMPOSITE_TYPE, ITEM_NAMES, new Object[] { row.id, row.keyspace,
+                    row.table, row.compactedAt, row.bytesIn, row.bytesOut, row.rowsMerged }));
         }
         return result;
     }
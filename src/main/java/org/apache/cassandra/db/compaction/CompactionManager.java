@@ -56,8 +56,13 @@ public class CompactionManager extends MetricsMBean implements CompactionManager
         logger.finest(str);
     }
 
+    private final CompactionHistoryCache history;
+    private final CompactionProgressTracker progress;
+
     public CompactionManager(APIClient client) {
         super(MBEAN_OBJECT_NAME, client, new CompactionMetrics());
+        history = new CompactionHistoryCache(client);
+        progress = new CompactionProgressTracker(client);
     }
 
     /** List of running compaction objects. */
@@ -81,6 +86,40 @@ public class CompactionManager extends MetricsMBean implements CompactionManager
         return results;
     }
 
+    @Override
+    public List<Map<String, String>> getCompactionProgress() {
+        log(" getCompactionProgress()");
+        return progress.getProgress();
+    }
+
+    @Override
+    public Map<String, Double> getCompactionThroughputByTable() {
+        log(" getCompactionThroughputByTable()");
+        return progress.getThroughputByTable();
+    }
+
+    @Override
+    public long getEstimatedBacklogDrainTime() {
+        log(" getEstimatedBacklogDrainTime()");
+        long pending = 0;
+        JsonArray tables = client.getJsonArray("compaction_manager/metrics/pending_tasks_by_table");
+        for (int i = 0; i < tables.size(); i++) {
+            pending += tables.getJsonObject(i).getJsonNumber("task").longValue();
+        }
+        return progress.getBacklogDrainTime(pending);
+    }
+
+    @Override
+    public long getCompactionProgressSampleInterval() {
+        return progress.getInterval();
+    }
+
+    @Override
+    public void setCompactionProgressSampleInterval(long ms) {
+        log(" setCompactionProgressSampleInterval(long ms)");
+        progress.setInterval(ms);
+    }
+
     /** List of running compaction summary strings. */
     @Override
     public List<String> getCompactionSummary() {
@@ -93,7 +132,20 @@ public class CompactionManager extends MetricsMBean implements CompactionManager
     public TabularData getCompactionHistory() {
         log(" getCompactionHistory()");
         try {
-            return CompactionHistoryTabularData.from(client.getJsonArray("/compaction_manager/compaction_history"));
+            return history.getHistory();
+        } catch (OpenDataException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public TabularData getCompactionHistory(String keyspace, String table, long from, long to, int offset,
+            int limit) {
+        log(" getCompactionHistory(String keyspace, String table, long from, long to, int offset, int limit)");
+        try {
+            return history.getHistory(r -> (keyspace == null || keyspace.isEmpty() || keyspace.equals(r.keyspace))
+                    && (table == null || table.isEmpty() || table.equals(r.table)) && r.compactedAt >= from
+                    && (to <= 0 || r.compactedAt < to), offset, limit);
         } catch (OpenDataException e) {
             return null;
         }
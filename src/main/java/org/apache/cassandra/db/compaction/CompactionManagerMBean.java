@@ -26,12 +26,54 @@ public interface CompactionManagerMBean {
     /** List of running compaction objects. */
     public List<Map<String, String>> getCompactions();
 
+    /**
+     * List of running compactions, as in {@link #getCompactions()}, with their
+     * "throughput" (units per second), "eta" and "elapsed" time (ms) added.
+     * The eta is -1 if it cannot be estimated yet.
+     */
+    public List<Map<String, String>> getCompactionProgress();
+
+    /** Current compaction throughput per table (keyspace.table), in bytes per second */
+    public Map<String, Double> getCompactionThroughputByTable();
+
+    /**
+     * Estimated time in ms to finish the running and pending compactions, or
+     * -1 if it cannot be estimated yet.
+     */
+    public long getEstimatedBacklogDrainTime();
+
+    /** Sampling interval, in ms, of the compaction progress */
+    public long getCompactionProgressSampleInterval();
+
+    public void setCompactionProgressSampleInterval(long ms);
+
     /** List of running compaction summary strings. */
     public List<String> getCompactionSummary();
 
     /** compaction history **/
     public TabularData getCompactionHistory();
 
+    /**
+     * Compaction history, newest first, filtered and paged.
+     *
+     * @param keyspace
+     *            only compactions of this keyspace, or all if null or empty
+     * @param table
+     *            only compactions of this table, or all if null or empty
+     * @param from
+     *            only compactions finished at or after this time (ms since
+     *            the epoch)
+     * @param to
+     *            only compactions finished before this time (ms since the
+     *            epoch), or no bound if not positive
+     * @param offset
+     *            number of matching entries to skip
+     * @param limit
+     *            maximum number of entries to return, or all if not positive
+     */
+    public TabularData getCompactionHistory(String keyspace, String table, long from, long to, int offset,
+            int limit);
+
     /**
      * Triggers the compaction of user specified sstables. You can specify files
      * from various keyspaces and columnfamilies. If you do so, user defined
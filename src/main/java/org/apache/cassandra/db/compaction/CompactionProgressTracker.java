@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.db.compaction;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.scylladb.jmx.api.APIClient;
+
+/**
+ * Follows the progress of the running compactions by sampling
+ * <code>compaction_manager/compactions</code> periodically, and derives
+ * throughput and completion estimates from the samples.
+ * <p>
+ * Sampling starts on the first read and stops after {@link #IDLE_TIMEOUT}
+ * ms without one. Rates are computed over the samples of the last
+ * {@link #WINDOW} ms.
+ */
+class CompactionProgressTracker {
+    private static final Logger logger = Logger.getLogger(CompactionProgressTracker.class.getName());
+
+    static final long WINDOW = Long.getLong("scylla.jmx.compaction.progress_window_ms", 60000);
+    static final long IDLE_TIMEOUT = Long.getLong("scylla.jmx.compaction.progress_idle_timeout_ms", 10 * 60 * 1000);
+
+    private static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("compaction-progress").build());
+
+    private static final class Point {
+        private final long time;
+        private final long completed;
+
+        Point(long time, long completed) {
+            this.time = time;
+            this.completed = completed;
+        }
+    }
+
+    static final class Task {
+        final String id;
+        final String keyspace;
+        final String table;
+        final String taskType;
+        final String unit;
+        final long started;
+        long total;
+        long completed;
+        long lastSeen;
+        private final ArrayDeque<Point> points = new ArrayDeque<>();
+
+        Task(String id, String keyspace, String table, String taskType, String unit, long now) {
+            this.id = id;
+            this.keyspace = keyspace;
+            this.table = table;
+            this.taskType = taskType;
+            this.unit = unit;
+            this.started = now;
+        }
+
+        void add(long now, long total, long completed) {
+            this.total = total;
+            this.completed = completed;
+            this.lastSeen = now;
+            points.addLast(new Point(now, completed));
+            while (points.size() > 2 && now - points.peekFirst().time > WINDOW) {
+                points.removeFirst();
+            }
+        }
+
+        /** units (normally bytes) per second, or 0 if not known yet */
+        double throughput() {
+            if (points.size() < 2) {
+                return 0;
+            }
+            Point first = points.peekFirst(), last = points.peekLast();
+            if (last.time == first.time) {
+                return 0;
+            }
+            return Math.max(0, (last.completed - first.completed) * 1000.0 / (last.time - first.time));
+        }
+
+        /** estimated ms to completion, or -1 if not known */
+        long eta() {
+            double t = throughput();
+            if (t <= 0) {
+                return -1;
+            }
+            return (long) (Math.max(0, total - completed) * 1000 / t);
+        }
+
+        long remaining() {
+            return Math.max(0, total - completed);
+        }
+    }
+
+    private final APIClient client;
+    private final Map<String, Task> tasks = new HashMap<>();
+    // durations of finished tasks, for the backlog estimate
+    private long finishedCount;
+    private long finishedDuration;
+    private volatile long interval = Long.getLong("scylla.jmx.compaction.progress_interval_ms", 5000);
+    private volatile long lastRead;
+    private ScheduledFuture<?> sampler;
+
+    CompactionProgressTracker(APIClient client) {
+        this.client = client;
+    }
+
+    long getInterval() {
+        return interval;
+    }
+
+    synchronized void setInterval(long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive");
+        }
+        this.interval = interval;
+        if (sampler != null) {
+            sampler.cancel(false);
+            sampler = executor.scheduleWithFixedDelay(this::backgroundSample, interval, interval, MILLISECONDS);
+        }
+    }
+
+    private void backgroundSample() {
+        synchronized (this) {
+            if (System.currentTimeMillis() - lastRead > IDLE_TIMEOUT) {
+                sampler.cancel(false);
+                sampler = null;
+                tasks.clear();
+                return;
+            }
+        }
+        try {
+            sample();
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Failed to sample compaction progress", e);
+        }
+    }
+
+    private static String key(JsonObject compaction) {
+        if (compaction.containsKey("id")) {
+            return compaction.getString("id");
+        }
+        // no id from older servers, use what identifies the task best
+        return compaction.getString("ks") + "." + compaction.getString("cf") + "/" + compaction.getString("task_type")
+                + "/" + compaction.getJsonNumber("total").longValue();
+    }
+
+    private synchronized void sample() {
+        JsonArray compactions = client.getJsonArray("compaction_manager/compactions");
+        long now = System.currentTimeMillis();
+        Map<String, Task> seen = new HashMap<>();
+        for (int i = 0; i < compactions.size(); i++) {
+            JsonObject compaction = compactions.getJsonObject(i);
+            String key = key(compaction);
+            Task task = tasks.get(key);
+            if (task == null) {
+                task = new Task(compaction.containsKey("id") ? compaction.getString("id") : "<none>",
+                        compaction.getString("ks"), compaction.getString("cf"), compaction.getString("task_type"),
+                        compaction.getString("unit"), now);
+            }
+            task.add(now, compaction.getJsonNumber("total").longValue(),
+                    compaction.getJsonNumber("completed").longValue());
+            seen.put(key, task);
+        }
+        for (Iterator<Map.Entry<String, Task>> i = tasks.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<String, Task> e = i.next();
+            if (!seen.containsKey(e.getKey())) {
+                Task task = e.getValue();
+                if (task.lastSeen > task.started) {
+                    ++finishedCount;
+                    finishedDuration += task.lastSeen - task.started;
+                }
+                i.remove();
+            }
+        }
+        tasks.putAll(seen);
+    }
+
+    private synchronized List<Task> getTasks() {
+        lastRead = System.currentTimeMillis();
+        if (sampler == null) {
+            sample();
+            sampler = executor.scheduleWithFixedDelay(this::backgroundSample, interval, interval, MILLISECONDS);
+        }
+        return new ArrayList<>(tasks.values());
+    }
+
+    /**
+     * The running compactions, with their throughput (units per second) and
+     * estimated time to completion (ms, or -1 if unknown).
+     */
+    synchronized List<Map<String, String>> getProgress() {
+        List<Map<String, String>> results = new ArrayList<>();
+        for (Task task : getTasks()) {
+            Map<String, String> result = new HashMap<>();
+            result.put("total", Long.toString(task.total));
+            result.put("completed", Long.toString(task.completed));
+            result.put("taskType", task.taskType);
+            result.put("keyspace", task.keyspace);
+            result.put("columnfamily", task.table);
+            result.put("unit", task.unit);
+            result.put("compactionId", task.id);
+            result.put("throughput", Double.toString(task.throughput()));
+            result.put("eta", Long.toString(task.eta()));
+            result.put("elapsed", Long.toString(task.lastSeen - task.started));
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Compaction throughput per table ("keyspace.table"), in units per
+     * second.
+     */
+    synchronized Map<String, Double> getThroughputByTable() {
+        Map<String, Double> res = new HashMap<>();
+        for (Task task : getTasks()) {
+            res.merge(task.keyspace + "." + task.table, task.throughput(), Double::sum);
+        }
+        return res;
+    }
+
+    /**
+     * Estimated ms until the running and pending compactions are done, or -1
+     * if there is not enough data yet.
+     * <p>
+     * Running compactions are estimated from their remaining bytes and the
+     * current overall throughput; pending ones from the average duration of
+     * the compactions seen finishing, spread over the number of compactions
+     * running in parallel.
+     */
+    synchronized long getBacklogDrainTime(long pendingTasks) {
+        List<Task> running = getTasks();
+        double throughput = 0;
+        long remaining = 0;
+        for (Task task : running) {
+            throughput += task.throughput();
+            remaining += task.remaining();
+        }
+        long res = 0;
+        if (remaining > 0) {
+            if (throughput <= 0) {
+                return -1;
+            }
+            res += (long) (remaining * 1000 / throughput);
+        }
+        if (pendingTasks > 0) {
+            if (finishedCount == 0) {
+                return -1;
+            }
+            long parallelism = Math.max(1, running.size());
+            res += pendingTasks * (finishedDuration / finishedCount) / parallelism;
+        }
+        return res;
+    }
+}
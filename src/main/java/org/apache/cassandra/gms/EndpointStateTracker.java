@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.gms;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.scylladb.jmx.api.APIClient;
+import com.scylladb.jmx.utils.InetAddressUtils;
+
+/**
+ * Keeps the failure detector endpoint states in memory.
+ * <p>
+ * The table is refreshed from <code>/failure_detector/endpoints</code> when
+ * it is older than {@link #POLL_INTERVAL} ms, and polled in the background
+ * at that interval while there are listeners. Each poll is diffed against
+ * the table by generation, heartbeat version and liveness; unchanged
+ * endpoints keep their {@link EndpointState} and changes are reported to the
+ * listeners.
+ * <p>
+ * The time an endpoint went down is recorded when the transition is seen
+ * by two polls close enough together for it to be meaningful.
+ */
+class EndpointStateTracker {
+    private static final Logger logger = Logger.getLogger(EndpointStateTracker.class.getName());
+
+    static final long POLL_INTERVAL = Long.getLong("scylla.jmx.gossip.poll_interval_ms", 1000);
+
+    private static final Map<APIClient, EndpointStateTracker> instances = new WeakHashMap<>();
+
+    private static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("endpoint-state-poller").build());
+
+    static synchronized EndpointStateTracker getInstance(APIClient client) {
+        return instances.computeIfAbsent(client, EndpointStateTracker::new);
+    }
+
+    interface Listener {
+        /**
+         * Called for each endpoint whose state differs from the previous
+         * poll. <code>prev</code> is <code>null</code> for new endpoints and
+         * <code>current</code> is <code>null</code> for removed ones.
+         */
+        void onChange(String endpoint, EndpointState prev, EndpointState current);
+    }
+
+    private final APIClient client;
+    private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
+    private volatile Map<String, EndpointState> states = emptyMap();
+    private volatile long lastPoll;
+    private final Map<String, Long> downSince = new ConcurrentHashMap<>();
+    private boolean initialized;
+    private ScheduledFuture<?> poller;
+
+    private EndpointStateTracker(APIClient client) {
+        this.client = client;
+    }
+
+    synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+        if (poller == null) {
+            poller = executor.scheduleWithFixedDelay(this::backgroundPoll, 0, POLL_INTERVAL, MILLISECONDS);
+        }
+    }
+
+    synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty() && poller != null) {
+            poller.cancel(false);
+            poller = null;
+        }
+    }
+
+    private void backgroundPoll() {
+        try {
+            poll();
+        } catch (Exception e) {
+            // keep polling, the API server may just be restarting
+            logger.log(Level.FINE, "Failed to poll endpoint states", e);
+        }
+    }
+
+    /**
+     * The endpoint states, at most {@link #POLL_INTERVAL} ms old.
+     */
+    Map<String, EndpointState> getStates() {
+        return getStates(POLL_INTERVAL);
+    }
+
+    /**
+     * The endpoint states, at most <code>maxAge</code> ms old.
+     */
+    Map<String, EndpointState> getStates(long maxAge) {
+        if (System.currentTimeMillis() - lastPoll >= maxAge) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - lastPoll >= maxAge) {
+                    poll();
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * When (in ms since the epoch) the endpoint was seen going down, or
+     * <code>null</code> if that is not known.
+     */
+    Long getDownSince(String endpoint) {
+        return downSince.get(endpoint);
+    }
+
+    void setDownSince(String endpoint, long timestamp) {
+        EndpointState state = states.get(endpoint);
+        if (state != null && !state.isAlive()) {
+            downSince.putIfAbsent(endpoint, timestamp);
+        }
+    }
+
+    private static EndpointState parse(JsonObject obj) {
+        EndpointState ep = new EndpointState(new HeartBeatState(obj.getInt("generation"), obj.getInt("version")));
+        ep.setAliave(obj.getBoolean("is_alive"));
+        ep.setUpdateTimestamp(obj.getJsonNumber("update_time").longValue());
+        JsonArray states = obj.getJsonArray("application_state");
+        if (states != null) {
+            for (int j = 0; j < states.size(); j++) {
+                JsonObject state = states.getJsonObject(j);
+                ep.addApplicationState(state.getInt("application_state"), state.getString("value"));
+            }
+        }
+        return ep;
+    }
+
+    private synchronized void poll() {
+        JsonArray arr = client.getJsonArray("/failure_detector/endpoints");
+        Map<String, EndpointState> prev = states;
+        Map<String, EndpointState> res = new HashMap<String, EndpointState>(arr.size() * 4 / 3 + 1);
+        boolean notify = initialized && !listeners.isEmpty();
+        long now = System.currentTimeMillis();
+        // only trust the transition time if the previous poll is recent
+        boolean timely = initialized && now - lastPoll <= 2 * POLL_INTERVAL;
+
+        for (int i = 0; i < arr.size(); i++) {
+            JsonObject obj = arr.getJsonObject(i);
+            String addr = InetAddressUtils.normalize(obj.getString("addrs"));
+            EndpointState old = prev.get(addr);
+            // published states are read without a lock, so each poll builds
+            // new ones rather than updating them
+            EndpointState ep = parse(obj);
+            res.put(addr, ep);
+            if (old != null && old.getHeartBeatState().getGeneration() == ep.getHeartBeatState().getGeneration()
+                    && old.getHeartBeatState().getHeartBeatVersion() == ep.getHeartBeatState().getHeartBeatVersion()
+                    && old.isAlive() == ep.isAlive()) {
+                continue;
+            }
+            if (ep.isAlive()) {
+                downSince.remove(addr);
+            } else if (old != null && old.isAlive() && timely) {
+                downSince.put(addr, now);
+            }
+            if (notify) {
+                fire(addr, old, ep);
+            }
+        }
+        if (notify) {
+            for (Map.Entry<String, EndpointState> e : prev.entrySet()) {
+                if (!res.containsKey(e.getKey())) {
+                    fire(e.getKey(), e.getValue(), null);
+                }
+            }
+        }
+        downSince.keySet().retainAll(res.keySet());
+        states = unmodifiableMap(res);
+        lastPoll = now;
+        initialized = true;
+    }
+
+    private void fire(String endpoint, EndpointState prev, EndpointState current) {
+        for (Listener l : listeners) {
+            try {
+                l.onChange(endpoint, prev, current);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Endpoint state listener failed", e);
+            }
+        }
+    }
+}
@@ -25,12 +25,22 @@
 package org.apache.cassandra.gms;
 
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.json.JsonValue;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanNotificationInfo;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
 import javax.management.openmbean.CompositeData;
 import javax.management.openmbean.CompositeDataSupport;
 import javax.management.openmbean.CompositeType;
@@ -43,16 +53,129 @@ import javax.management.openmbean.TabularType;
 
 import com.scylladb.jmx.api.APIClient;
 import com.scylladb.jmx.metrics.APIMBean;
+import com.scylladb.jmx.utils.BoundedNotificationBroadcaster;
 
-public class FailureDetector extends APIMBean implements FailureDetectorMBean {
+public class FailureDetector extends APIMBean implements FailureDetectorMBean, NotificationEmitter {
     public static final String MBEAN_NAME = "org.apache.cassandra.net:type=FailureDetector";
     private static final java.util.logging.Logger logger = java.util.logging.Logger
             .getLogger(FailureDetector.class.getName());
 
+    /** An endpoint was marked alive */
+    public static final String ENDPOINT_UP = "endpoint.up";
+    /** An endpoint was marked dead */
+    public static final String ENDPOINT_DOWN = "endpoint.down";
+    /** The generation, heartbeat or application states of an endpoint changed */
+    public static final String ENDPOINT_STATE = "endpoint.state";
+    /** An endpoint was removed from gossip */
+    public static final String ENDPOINT_REMOVED = "endpoint.removed";
+
+    /** Name of the notification broadcaster, in metrics and configuration */
+    public static final String NOTIFICATIONS = "FailureDetector";
+
+    private final NotificationBroadcasterSupport notificationBroadcasterSupport = new BoundedNotificationBroadcaster(
+            NOTIFICATIONS, null,
+            new MBeanNotificationInfo(new String[] { ENDPOINT_UP, ENDPOINT_DOWN, ENDPOINT_STATE, ENDPOINT_REMOVED },
+                    Notification.class.getName(), "Endpoint state changes"));
+    private final AtomicLong notificationSerialNumber = new AtomicLong();
+    // one entry per registration, to know when to stop polling
+    private final List<NotificationListener> listeners = new ArrayList<>();
+    private final EndpointStateTracker.Listener trackerListener = this::onChange;
+
     public FailureDetector(APIClient c) {
         super(c);
     }
 
+    private EndpointStateTracker tracker() {
+        return EndpointStateTracker.getInstance(client);
+    }
+
+    @Override
+    public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+        notificationBroadcasterSupport.addNotificationListener(listener, filter, handback);
+        synchronized (listeners) {
+            if (listeners.isEmpty()) {
+                tracker().addListener(trackerListener);
+            }
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+        notificationBroadcasterSupport.removeNotificationListener(listener);
+        forget(listener);
+    }
+
+    private void forget(NotificationListener listener) {
+        synchronized (listeners) {
+            listeners.removeIf(l -> l == listener);
+            stopTrackingIfIdle();
+        }
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback)
+            throws ListenerNotFoundException {
+        notificationBroadcasterSupport.removeNotificationListener(listener, filter, handback);
+        synchronized (listeners) {
+            listeners.remove(listener);
+            stopTrackingIfIdle();
+        }
+    }
+
+    private void stopTrackingIfIdle() {
+        if (listeners.isEmpty()) {
+            tracker().removeListener(trackerListener);
+        }
+    }
+
+    @Override
+    public MBeanNotificationInfo[] getNotificationInfo() {
+        return notificationBroadcasterSupport.getNotificationInfo();
+    }
+
+    private void onChange(String endpoint, EndpointState prev, EndpointState current) {
+        if (current == null) {
+            sendNotification(ENDPOINT_REMOVED, endpoint, prev);
+            return;
+        }
+        if (prev == null || prev.isAlive() != current.isAlive()) {
+            sendNotification(current.isAlive() ? ENDPOINT_UP : ENDPOINT_DOWN, endpoint, current);
+        }
+        Map<String, String> changes = new HashMap<>();
+        for (Map.Entry<ApplicationState, String> e : current.applicationState.entrySet()) {
+            if (prev == null || !e.getValue().equals(prev.applicationState.get(e.getKey()))) {
+                changes.put(e.getKey().name(), e.getValue());
+            }
+        }
+        if (prev == null || !changes.isEmpty()
+                || prev.getHeartBeatState().getGeneration() != current.getHeartBeatState().getGeneration()) {
+            Map<String, Object> userData = userData(endpoint, current);
+            userData.put("changes", changes);
+            sendNotification(ENDPOINT_STATE, endpoint, userData);
+        }
+    }
+
+    private static Map<String, Object> userData(String endpoint, EndpointState state) {
+        Map<String, Object> userData = new HashMap<>();
+        userData.put("endpoint", endpoint);
+        userData.put("generation", state.getHeartBeatState().getGeneration());
+        userData.put("version", state.getHeartBeatState().getHeartBeatVersion());
+        userData.put("alive", state.isAlive());
+        return userData;
+    }
+
+    private void sendNotification(String type, String endpoint, EndpointState state) {
+        sendNotification(type, endpoint, userData(endpoint, state));
+    }
+
+    private void sendNotification(String type, String endpoint, Map<String, Object> userData) {
+        Notification notification = new Notification(type, getBoundName(),
+                notificationSerialNumber.incrementAndGet(), endpoint);
+        notification.setUserData(userData);
+        notificationBroadcasterSupport.sendNotification(notification);
+    }
+
     public void log(String str) {
         logger.finest(str);
     }
@@ -97,28 +220,14 @@ public class FailureDetector extends APIMBean implements FailureDetectorMBean {
     }
 
     public Map<String, EndpointState> getEndpointStateMap() {
-        Map<String, EndpointState> res = new HashMap<String, EndpointState>();
-        JsonArray arr = client.getJsonArray("/failure_detector/endpoints");
-        for (int i = 0; i < arr.size(); i++) {
-            JsonObject obj = arr.getJsonObject(i);
-            EndpointState ep = new EndpointState(new HeartBeatState(obj.getInt("generation"), obj.getInt("version")));
-            ep.setAliave(obj.getBoolean("is_alive"));
-            ep.setUpdateTimestamp(obj.getJsonNumber("update_time").longValue());
-            JsonArray states = obj.getJsonArray("application_state");
-            if (states != null) {
-                for (int j = 0; j < states.size(); j++) {
-                    JsonObject state = states.getJsonObject(j);
-                    ep.addApplicationState(state.getInt("application_state"), state.getString("value"));
-                }
-            }
-            res.put(obj.getString("addrs"), ep);
-        }
-        return res;
+        return tracker().getStates();
     }
 
     @Override
     public String getEndpointState(String address) throws UnknownHostException {
         log(" getEndpointState(String address) throws UnknownHostException");
+        // the server formats a single state differently from the dump of all
+        // of them, so this is not served from the tracker
         return client.getStringValue("/failure_detector/endpoints/states/" + address);
     }
 
@@ -24,13 +24,25 @@
 package org.apache.cassandra.gms;
 
 import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 
+import com.google.common.base.Throwables;
 import com.scylladb.jmx.api.APIClient;
 import com.scylladb.jmx.metrics.APIMBean;
+import com.scylladb.jmx.utils.InetAddressUtils;
 
 /**
  * This module is responsible for Gossiping information for the local endpoint.
@@ -52,6 +64,36 @@ public class Gossiper extends APIMBean implements GossiperMBean {
 
     private static final Logger logger = Logger.getLogger(Gossiper.class.getName());
 
+    private static final String[] ITEM_NAMES = new String[] { "endpoint", "alive", "generation", "heartbeat",
+            "downtime" };
+
+    private static final String[] ITEM_DESCS = new String[] { "endpoint address", "is the endpoint alive",
+            "gossip generation", "heartbeat version", "time the endpoint has been down, in ms" };
+
+    private static final String TYPE_NAME = "EndpointTable";
+
+    private static final String ROW_DESC = "EndpointTable";
+
+    private static final CompositeType COMPOSITE_TYPE;
+
+    private static final TabularType TABULAR_TYPE;
+
+    static {
+        try {
+            OpenType<?>[] itemTypes = new OpenType[] { SimpleType.STRING, SimpleType.BOOLEAN, SimpleType.INTEGER,
+                    SimpleType.INTEGER, SimpleType.LONG };
+
+            COMPOSITE_TYPE = new CompositeType(TYPE_NAME, ROW_DESC, ITEM_NAMES, ITEM_DESCS, itemTypes);
+
+            TABULAR_TYPE = new TabularType(TYPE_NAME, ROW_DESC, COMPOSITE_TYPE, new String[] { "endpoint" });
+        } catch (OpenDataException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private volatile long endpointTableFreshness = Long.getLong("scylla.jmx.gossiper.freshness_ms",
+            EndpointStateTracker.POLL_INTERVAL);
+
     public Gossiper(APIClient c) {
         super(c);
     }
@@ -60,16 +102,90 @@ public class Gossiper extends APIMBean implements GossiperMBean {
         logger.finest(str);
     }
 
+    private Map<String, EndpointState> getStates() {
+        return EndpointStateTracker.getInstance(client).getStates(endpointTableFreshness);
+    }
+
+    private long getDowntime(String endpoint, EndpointState state) {
+        if (state.isAlive()) {
+            return 0;
+        }
+        EndpointStateTracker tracker = EndpointStateTracker.getInstance(client);
+        Long since = tracker.getDownSince(endpoint);
+        long now = System.currentTimeMillis();
+        if (since != null) {
+            return now - since;
+        }
+        // Was already down when we first saw it, ask once and extrapolate
+        // from there on.
+        long downtime = client.getLongValue("gossiper/downtime/" + endpoint);
+        tracker.setDownSince(endpoint, now - downtime);
+        return downtime;
+    }
+
     @Override
     public long getEndpointDowntime(String address) throws UnknownHostException {
         log(" getEndpointDowntime(String address) throws UnknownHostException");
-        return client.getLongValue("gossiper/downtime/" + address);
+        String endpoint = InetAddressUtils.normalize(address);
+        EndpointState state = getStates().get(endpoint);
+        if (state == null) {
+            return client.getLongValue("gossiper/downtime/" + address);
+        }
+        return getDowntime(endpoint, state);
     }
 
     @Override
     public int getCurrentGenerationNumber(String address) throws UnknownHostException {
         log(" getCurrentGenerationNumber(String address) throws UnknownHostException");
-        return client.getIntValue("gossiper/generation_number/" + address);
+        EndpointState state = getStates().get(InetAddressUtils.normalize(address));
+        if (state == null) {
+            return client.getIntValue("gossiper/generation_number/" + address);
+        }
+        return state.getHeartBeatState().getGeneration();
+    }
+
+    @Override
+    public Map<String, Long> getEndpointDowntimes() {
+        log(" getEndpointDowntimes()");
+        Map<String, Long> res = new HashMap<>();
+        for (Map.Entry<String, EndpointState> e : getStates().entrySet()) {
+            res.put(e.getKey(), getDowntime(e.getKey(), e.getValue()));
+        }
+        return res;
+    }
+
+    @Override
+    public Map<String, Integer> getCurrentGenerationNumbers() {
+        log(" getCurrentGenerationNumbers()");
+        Map<String, Integer> res = new HashMap<>();
+        for (Map.Entry<String, EndpointState> e : getStates().entrySet()) {
+            res.put(e.getKey(), e.getValue().getHeartBeatState().getGeneration());
+        }
+        return res;
+    }
+
+    @Override
+    public TabularData getEndpointTable() throws OpenDataException {
+        log(" getEndpointTable()");
+        TabularDataSupport result = new TabularDataSupport(TABULAR_TYPE);
+        for (Map.Entry<String, EndpointState> e : getStates().entrySet()) {
+            EndpointState state = e.getValue();
+            result.put(new CompositeDataSupport(COMPOSITE_TYPE, ITEM_NAMES,
+                    new Object[] { e.getKey(), state.isAlive(), state.getHeartBeatState().getGeneration(),
+                            state.getHeartBeatState().getHeartBeatVersion(), getDowntime(e.getKey(), state) }));
+        }
+        return result;
+    }
+
+    @Override
+    public long getEndpointTableFreshness() {
+        return endpointTableFreshness;
+    }
+
+    @Override
+    public void setEndpointTableFreshness(long ms) {
+        log(" setEndpointTableFreshness(long ms)");
+        endpointTableFreshness = ms;
     }
 
     @Override
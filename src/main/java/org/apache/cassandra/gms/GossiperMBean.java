@@ -18,12 +18,36 @@
 package org.apache.cassandra.gms;
 
 import java.net.UnknownHostException;
+import java.util.Map;
+
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.TabularData;
 
 public interface GossiperMBean {
     public long getEndpointDowntime(String address) throws UnknownHostException;
 
     public int getCurrentGenerationNumber(String address) throws UnknownHostException;
 
+    /** Downtime in ms of every known endpoint, 0 for live ones */
+    public Map<String, Long> getEndpointDowntimes();
+
+    /** Gossip generation of every known endpoint */
+    public Map<String, Integer> getCurrentGenerationNumbers();
+
+    /**
+     * Liveness, generation, heartbeat version and downtime of every known
+     * endpoint.
+     */
+    public TabularData getEndpointTable() throws OpenDataException;
+
+    /**
+     * Maximum age, in ms, of the endpoint table the per endpoint attributes
+     * are served from.
+     */
+    public long getEndpointTableFreshness();
+
+    public void setEndpointTableFreshness(long ms);
+
     public void unsafeAssassinateEndpoint(String address) throws UnknownHostException;
 
     public void assassinateEndpoint(String address) throws UnknownHostException;
@@ -17,17 +17,12 @@
  */
 package org.apache.cassandra.locator;
 
-import static java.util.Collections.singletonMap;
-
-import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.logging.Logger;
 
-import javax.ws.rs.core.MultivaluedHashMap;
-import javax.ws.rs.core.MultivaluedMap;
-
 import com.scylladb.jmx.api.APIClient;
 import com.scylladb.jmx.metrics.APIMBean;
+import com.scylladb.jmx.utils.InetAddressUtils;
 
 public class EndpointSnitchInfo extends APIMBean implements EndpointSnitchInfoMBean {
     public static final String MBEAN_NAME = "org.apache.cassandra.db:type=EndpointSnitchInfo";
@@ -51,9 +46,10 @@ public class EndpointSnitchInfo extends APIMBean implements EndpointSnitchInfoMB
     @Override
     public String getRack(String host) throws UnknownHostException {
         log("getRack(String host) throws UnknownHostException");
-        MultivaluedMap<String, String> queryParams = host != null ? new MultivaluedHashMap<String, String>(
-                singletonMap("host", InetAddress.getByName(host).getHostAddress())) : null;
-        return client.getStringValue("/snitch/rack", queryParams, 10000);
+        if (host == null) {
+            return getRack();
+        }
+        return SnitchTopology.getInstance(client).getRack(InetAddressUtils.getByName(host).getHostAddress());
     }
 
     /**
@@ -66,9 +62,10 @@ public class EndpointSnitchInfo extends APIMBean implements EndpointSnitchInfoMB
     @Override
     public String getDatacenter(String host) throws UnknownHostException {
         log(" getDatacenter(String host) throws UnknownHostException");
-        MultivaluedMap<String, String> queryParams = host != null ? new MultivaluedHashMap<String, String>(
-                singletonMap("host", InetAddress.getByName(host).getHostAddress())) : null;
-        return client.getStringValue("/snitch/datacenter", queryParams, 10000);
+        if (host == null) {
+            return getDatacenter();
+        }
+        return SnitchTopology.getInstance(client).getDatacenter(InetAddressUtils.getByName(host).getHostAddress());
     }
 
     /**
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.locator;
+
+import static java.util.Arrays.asList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token range -> replica endpoints map for a Murmur3 partitioned keyspace,
+ * held as primitive arrays.
+ * <p>
+ * Ranges are sorted by their (inclusive) end token. The replicas of range
+ * <code>i</code> are <code>replicas[offsets[i]]</code> up to (exclusive)
+ * <code>replicas[offsets[i + 1]]</code>, stored as indexes into a table of
+ * distinct endpoints. Looking up the range of a token is a binary search and
+ * does not allocate.
+ */
+public final class RangeReplicaMap {
+    private final long[] starts;
+    private final long[] ends;
+    private final int[] offsets;
+    private final int[] replicas;
+    private final String[] endpoints;
+    // index of the range wrapping around the ring, or -1
+    private final int wrapping;
+
+    private RangeReplicaMap(long[] starts, long[] ends, int[] offsets, int[] replicas, String[] endpoints) {
+        this.starts = starts;
+        this.ends = ends;
+        this.offsets = offsets;
+        this.replicas = replicas;
+        this.endpoints = endpoints;
+        int w = -1;
+        for (int i = 0; i < starts.length; ++i) {
+            if (starts[i] >= ends[i]) {
+                w = i;
+                break;
+            }
+        }
+        this.wrapping = w;
+    }
+
+    /**
+     * Builds the map from a [start, end] -> endpoints map as returned by the
+     * REST API.
+     *
+     * @return the map, or <code>null</code> if the tokens are not Murmur3
+     *         (long) tokens.
+     */
+    public static RangeReplicaMap from(Map<List<String>, List<String>> map) {
+        int n = map.size();
+        long[] keyStarts = new long[n];
+        long[] keyEnds = new long[n];
+        Integer[] order = new Integer[n];
+        List<List<String>> values = new ArrayList<>(n);
+        int i = 0;
+        int total = 0;
+        for (Map.Entry<List<String>, List<String>> e : map.entrySet()) {
+            List<String> range = e.getKey();
+            if (range.size() != 2) {
+                return null;
+            }
+            Long start = TokenRing.parseToken(range.get(0));
+            Long end = TokenRing.parseToken(range.get(1));
+            if (start == null || end == null) {
+                return null;
+            }
+            keyStarts[i] = start;
+            keyEnds[i] = end;
+            order[i] = i;
+            values.add(e.getValue());
+            total += e.getValue().size();
+            ++i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keyEnds[a], keyEnds[b]));
+
+        TokenRing.EndpointTable table = new TokenRing.EndpointTable();
+        long[] starts = new long[n];
+        long[] ends = new long[n];
+        int[] offsets = new int[n + 1];
+        int[] replicas = new int[total];
+        int pos = 0;
+        for (i = 0; i < n; ++i) {
+            int j = order[i];
+            starts[i] = keyStarts[j];
+            ends[i] = keyEnds[j];
+            offsets[i] = pos;
+            for (String endpoint : values.get(j)) {
+                replicas[pos++] = table.index(endpoint);
+            }
+        }
+        offsets[n] = pos;
+        return new RangeReplicaMap(starts, ends, offsets, replicas, table.toArray());
+    }
+
+    public int size() {
+        return ends.length;
+    }
+
+    private boolean contains(int i, long token) {
+        long start = starts[i], end = ends[i];
+        if (start < end) {
+            return start < token && token <= end;
+        }
+        // wrapping range (or the full ring)
+        return token > start || token <= end;
+    }
+
+    /**
+     * Index of the range containing the given token, or -1 if none does.
+     */
+    public int rangeIndex(long token) {
+        int i = Arrays.binarySearch(ends, token);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        if (i < ends.length && contains(i, token)) {
+            return i;
+        }
+        if (wrapping >= 0 && contains(wrapping, token)) {
+            return wrapping;
+        }
+        return -1;
+    }
+
+    public long start(int range) {
+        return starts[range];
+    }
+
+    public long end(int range) {
+        return ends[range];
+    }
+
+    public int replicaCount(int range) {
+        return offsets[range + 1] - offsets[range];
+    }
+
+    public String replica(int range, int i) {
+        return endpoints[replicas[offsets[range] + i]];
+    }
+
+    /**
+     * The replicas of the given range.
+     */
+    public List<String> replicas(int range) {
+        int n = replicaCount(range);
+        List<String> res = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            res.add(replica(range, i));
+        }
+        return res;
+    }
+
+    /**
+     * Fraction of the ring replicated on each endpoint, i.e. the effective
+     * ownership given the keyspace replication.
+     */
+    public Map<String, Float> effectiveOwnership() {
+        double[] owned = new double[endpoints.length];
+        for (int i = 0; i < ends.length; ++i) {
+            double width = TokenRing.width(starts[i], ends[i]);
+            for (int j = offsets[i]; j < offsets[i + 1]; ++j) {
+                owned[replicas[j]] += width;
+            }
+        }
+        Map<String, Float> res = new HashMap<>(endpoints.length * 4 / 3 + 1);
+        for (int i = 0; i < endpoints.length; ++i) {
+            res.put(endpoints[i], (float) owned[i]);
+        }
+        return res;
+    }
+
+    /**
+     * Materializes the [start, end] -> endpoints map.
+     */
+    public Map<List<String>, List<String>> toMap() {
+        Map<List<String>, List<String>> res = new HashMap<>(ends.length * 4 / 3 + 1);
+        for (int i = 0; i < ends.length; ++i) {
+            res.put(asList(Long.toString(starts[i]), Long.toString(ends[i])), replicas(i));
+        }
+        return res;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.locator;
+
+import static java.util.Collections.singletonMap;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.scylladb.jmx.api.APIClient;
+import com.scylladb.jmx.utils.InetAddressUtils;
+
+/**
+ * Datacenter and rack of every node in the cluster.
+ * <p>
+ * The table is loaded in bulk for all the endpoints in the host id map, with
+ * the per endpoint snitch queries issued in parallel, and reloaded only when
+ * the set of endpoints changes. The location of a node does not change while
+ * it is a member of the cluster. Hosts that are not members are looked up on
+ * each call and not kept.
+ */
+public class SnitchTopology {
+    private static final Logger logger = Logger.getLogger(SnitchTopology.class.getName());
+
+    static final int PARALLELISM = Integer.getInteger("scylla.jmx.snitch.parallelism", 16);
+
+    private static final Map<APIClient, SnitchTopology> instances = new WeakHashMap<>();
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 30,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("snitch-%d").build());
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized SnitchTopology getInstance(APIClient client) {
+        return instances.computeIfAbsent(client, SnitchTopology::new);
+    }
+
+    private static final class Location {
+        private final String datacenter;
+        private final String rack;
+
+        Location(String datacenter, String rack) {
+            this.datacenter = datacenter;
+            this.rack = rack;
+        }
+    }
+
+    private final APIClient client;
+    private volatile Set<String> members = new HashSet<>();
+    private volatile Map<String, Location> locations = new ConcurrentHashMap<>();
+
+    private SnitchTopology(APIClient client) {
+        this.client = client;
+    }
+
+    private Location fetch(String endpoint) {
+        MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>(
+                singletonMap("host", endpoint));
+        return new Location(client.getStringValue("/snitch/datacenter", queryParams),
+                client.getStringValue("/snitch/rack", queryParams));
+    }
+
+    private Map<String, Location> refresh() {
+        Set<String> current = TopologyCache.getInstance(client).getHostIdMap().keySet();
+        if (current.equals(members)) {
+            return locations;
+        }
+        synchronized (this) {
+            if (current.equals(members)) {
+                return locations;
+            }
+            logger.fine("Endpoints changed, reloading datacenter/rack of " + current.size() + " nodes");
+
+            Map<String, Location> res = new ConcurrentHashMap<>(current.size() * 4 / 3 + 1);
+            List<String> endpoints = new ArrayList<>();
+            List<Callable<Location>> tasks = new ArrayList<>();
+            for (String endpoint : current) {
+                Location l = locations.get(endpoint);
+                if (l != null) {
+                    res.put(endpoint, l);
+                } else {
+                    endpoints.add(endpoint);
+                    tasks.add(() -> fetch(endpoint));
+                }
+            }
+            try {
+                List<Future<Location>> futures = executor.invokeAll(tasks);
+                for (int i = 0; i < futures.size(); ++i) {
+                    try {
+                        res.put(endpoints.get(i), futures.get(i).get());
+                    } catch (ExecutionException e) {
+                        // leave it to the per host lookup to report
+                        logger.fine("Failed to get location of " + endpoints.get(i) + ": " + e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading snitch information", e);
+            }
+            locations = res;
+            members = new HashSet<>(current);
+            return res;
+        }
+    }
+
+    private Location getLocation(String host) {
+        String endpoint = InetAddressUtils.normalize(host);
+        Map<String, Location> map = refresh();
+        Location l = map.get(endpoint);
+        if (l == null) {
+            // not (yet) a member, or failed during the bulk load
+            l = fetch(endpoint);
+            if (members.contains(endpoint)) {
+                // anything else could be asked about, keep members only
+                map.put(endpoint, l);
+            }
+        }
+        return l;
+    }
+
+    public String getDatacenter(String host) {
+        return getLocation(host).datacenter;
+    }
+
+    public String getRack(String host) {
+        return getLocation(host).rack;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.locator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.scylladb.jmx.utils.InetAddressUtils;
+
+/**
+ * Token ring of a Murmur3 partitioned cluster, held as primitive arrays.
+ * <p>
+ * Tokens are kept sorted in a <code>long[]</code>, with the owner of each
+ * token stored as an index into a table of distinct endpoints. Lookups are a
+ * binary search and do not allocate.
+ */
+public final class TokenRing {
+    private final long[] tokens;
+    private final int[] owners;
+    private final String[] endpoints;
+
+    private TokenRing(long[] tokens, int[] owners, String[] endpoints) {
+        this.tokens = tokens;
+        this.owners = owners;
+        this.endpoints = endpoints;
+    }
+
+    /**
+     * Builds a ring from a token -> endpoint map as returned by the REST API.
+     *
+     * @return the ring, or <code>null</code> if the tokens are not Murmur3
+     *         (long) tokens.
+     */
+    public static TokenRing from(Map<String, String> tokenToEndpoint) {
+        int n = tokenToEndpoint.size();
+        long[] keys = new long[n];
+        int i = 0;
+        for (String token : tokenToEndpoint.keySet()) {
+            Long t = parseToken(token);
+            if (t == null) {
+                return null;
+            }
+            keys[i++] = t;
+        }
+        // the map is normally already in ascending token order, but don't
+        // depend on it.
+        long[] tokens = keys.clone();
+        Arrays.sort(tokens);
+
+        EndpointTable table = new EndpointTable();
+        int[] owners = new int[n];
+        i = 0;
+        for (String endpoint : tokenToEndpoint.values()) {
+            int pos = Arrays.binarySearch(tokens, keys[i++]);
+            owners[pos] = table.index(endpoint);
+        }
+        return new TokenRing(tokens, owners, table.toArray());
+    }
+
+    static Long parseToken(String s) {
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public int size() {
+        return tokens.length;
+    }
+
+    public long token(int i) {
+        return tokens[i];
+    }
+
+    public String owner(int i) {
+        return endpoints[owners[i]];
+    }
+
+    /**
+     * Index of the first token greater or equal to the given one, wrapping
+     * around to 0. This is the token owning the given token.
+     */
+    public int ownerIndex(long token) {
+        int i = Arrays.binarySearch(tokens, token);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return i == tokens.length ? 0 : i;
+    }
+
+    /**
+     * The endpoint owning (primary replica) the given token.
+     */
+    public String primaryEndpoint(long token) {
+        return tokens.length == 0 ? null : owner(ownerIndex(token));
+    }
+
+    /**
+     * Fraction of the ring between the two tokens, i.e. of the range (start,
+     * end]. Equal tokens denote the whole ring.
+     */
+    public static double width(long start, long end) {
+        long w = end - start; // unsigned, modulo 2^64
+        if (w == 0) {
+            return 1.0;
+        }
+        return ((w >>> 1) * 2.0 + (w & 1)) / 0x1p64;
+    }
+
+    /**
+     * Fraction of the ring each endpoint is the primary owner of.
+     */
+    public Map<String, Float> ownership() {
+        double[] owned = new double[endpoints.length];
+        for (int i = 0; i < tokens.length; ++i) {
+            long prev = tokens[i == 0 ? tokens.length - 1 : i - 1];
+            owned[owners[i]] += width(prev, tokens[i]);
+        }
+        Map<String, Float> res = new HashMap<>(endpoints.length * 4 / 3 + 1);
+        for (int i = 0; i < endpoints.length; ++i) {
+            res.put(endpoints[i], (float) owned[i]);
+        }
+        return res;
+    }
+
+    /**
+     * Materializes the token -> endpoint map, in ascending token order.
+     */
+    public Map<String, String> toTokenToEndpointMap() {
+        Map<String, String> res = new LinkedHashMap<>(tokens.length * 4 / 3 + 1);
+        for (int i = 0; i < tokens.length; ++i) {
+            res.put(Long.toString(tokens[i]), owner(i));
+        }
+        return res;
+    }
+
+    /**
+     * Interns endpoint strings into a table of distinct, normalized
+     * addresses.
+     */
+    static final class EndpointTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private String[] endpoints = new String[16];
+
+        int index(String endpoint) {
+            String normalized = InetAddressUtils.normalize(endpoint);
+            Integer i = indexes.get(normalized);
+            if (i == null) {
+                i = indexes.size();
+                if (i == endpoints.length) {
+                    endpoints = Arrays.copyOf(endpoints, i * 2);
+                }
+                endpoints[i] = normalized;
+                indexes.put(normalized, i);
+            }
+            return i;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(endpoints, indexes.size());
+        }
+    }
+}
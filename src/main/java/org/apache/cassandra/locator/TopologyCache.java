@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.locator;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.apache.cassandra.db.SchemaCatalog;
+
+import com.scylladb.jmx.api.APIClient;
+import com.scylladb.jmx.utils.InetAddressUtils;
+
+/**
+ * Proxy side cache of the token ring and the per keyspace range maps derived
+ * from it.
+ * <p>
+ * Fetching the ring is expensive (with vnodes it is hundreds of thousands of
+ * entries for a large cluster), so it is fetched once and kept until the ring
+ * actually changes. Changes are detected through cheap signals: the host id
+ * map, the joining/leaving/moving node lists and the schema version (which
+ * covers replication changes), the latter shared with {@link SchemaCatalog}.
+ * These are checked at most once per {@link #VALIDATE_INTERVAL} ms, and
+ * everything is refetched after {@link #MAX_AGE} ms regardless, to catch
+ * anything the signals miss. The node lists themselves are always served
+ * live.
+ */
+public class TopologyCache {
+    private static final Logger logger = Logger.getLogger(TopologyCache.class.getName());
+
+    static final long VALIDATE_INTERVAL = Long.getLong("scylla.jmx.topology.validate_interval_ms", 1000);
+    static final long MAX_AGE = Long.getLong("scylla.jmx.topology.max_age_ms", 60000);
+
+    private static final Map<APIClient, TopologyCache> instances = new WeakHashMap<>();
+
+    public static synchronized TopologyCache getInstance(APIClient client) {
+        return instances.computeIfAbsent(client, TopologyCache::new);
+    }
+
+    /**
+     * The cheap signals we use to decide if the ring has changed.
+     */
+    private static class RingState {
+        private final Map<String, String> hostIds;
+        private final List<String> joining;
+        private final List<String> leaving;
+        private final List<String> moving;
+        private final String schemaVersion;
+
+        RingState(Map<String, String> hostIds, List<String> joining, List<String> leaving, List<String> moving,
+                String schemaVersion) {
+            this.hostIds = hostIds;
+            this.joining = joining;
+            this.leaving = leaving;
+            this.moving = moving;
+            this.schemaVersion = schemaVersion;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof RingState)) {
+                return false;
+            }
+            RingState other = (RingState) obj;
+            return hostIds.equals(other.hostIds) && joining.equals(other.joining) && leaving.equals(other.leaving)
+                    && moving.equals(other.moving) && Objects.equals(schemaVersion, other.schemaVersion);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hostIds, joining, leaving, moving, schemaVersion);
+        }
+    }
+
+    /**
+     * Immutable (apart from lazily filled in entries) view of the ring at a
+     * given version.
+     */
+    private static class Topology {
+        private final long version;
+        private final RingState state;
+        private final long created;
+        private volatile long validated;
+        private final Map<String, Object> entries = new ConcurrentHashMap<>();
+
+        Topology(long version, RingState state, long now) {
+            this.version = version;
+            this.state = state;
+            this.created = now;
+            this.validated = now;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T get(String key, Supplier<T> loader) {
+            Object res = entries.get(key);
+            if (res == null) {
+                // Not holding any lock while talking to the server. Two
+                // concurrent misses will both fetch, which is ok.
+                res = loader.get();
+                Object prev = entries.putIfAbsent(key, res);
+                if (prev != null) {
+                    res = prev;
+                }
+            }
+            return (T) res;
+        }
+    }
+
+    private final APIClient client;
+    private volatile Topology current;
+
+    private TopologyCache(APIClient client) {
+        this.client = client;
+    }
+
+    private List<String> getNodes(String state) {
+        return normalize(client.getListStrValue("/storage_service/nodes/" + state));
+    }
+
+    private RingState fetchState() {
+        Map<String, String> hostIds = new HashMap<>();
+        for (Map.Entry<String, String> e : client.getMapStrValue("/storage_service/host_id").entrySet()) {
+            hostIds.put(InetAddressUtils.normalize(e.getKey()), e.getValue());
+        }
+        return new RingState(hostIds, getNodes("joining"), getNodes("leaving"), getNodes("moving"),
+                SchemaCatalog.getInstance(client).getSchemaVersion());
+    }
+
+    private Topology validate() {
+        Topology t = current;
+        long now = System.currentTimeMillis();
+        if (t != null && now - t.validated < VALIDATE_INTERVAL) {
+            return t;
+        }
+        synchronized (this) {
+            t = current;
+            now = System.currentTimeMillis();
+            if (t != null && now - t.validated < VALIDATE_INTERVAL) {
+                return t;
+            }
+            RingState state = fetchState();
+            if (t != null && state.equals(t.state)) {
+                if (now - t.created < MAX_AGE) {
+                    t.validated = now;
+                    return t;
+                }
+                // Same signals, but old enough that we want to refetch.
+                t = new Topology(t.version + 1, state, now);
+            } else {
+                if (t != null) {
+                    logger.fine("Ring changed, invalidating topology cache");
+                }
+                t = new Topology(t == null ? 1 : t.version + 1, state, now);
+            }
+            current = t;
+            return t;
+        }
+    }
+
+    /**
+     * Drops all cached data. The next access will refetch the ring.
+     */
+    public synchronized void invalidate() {
+        current = null;
+    }
+
+    /**
+     * Monotonically increasing version of the ring, bumped whenever any of
+     * the change signals differ from the previous check, and on every
+     * refetch.
+     */
+    public long getVersion() {
+        return validate().version;
+    }
+
+    /** endpoint -> host id */
+    public Map<String, String> getHostIdMap() {
+        return unmodifiableMap(validate().state.hostIds);
+    }
+
+    /** host id -> endpoint */
+    public Map<String, String> getHostIdToEndpointMap() {
+        Topology t = validate();
+        return t.get("host_id_to_endpoint", () -> {
+            Map<String, String> res = new HashMap<>();
+            for (Map.Entry<String, String> e : t.state.hostIds.entrySet()) {
+                res.put(e.getValue(), e.getKey());
+            }
+            return unmodifiableMap(res);
+        });
+    }
+
+    public List<String> getJoiningNodes() {
+        return unmodifiableList(getNodes("joining"));
+    }
+
+    public List<String> getLeavingNodes() {
+        return unmodifiableList(getNodes("leaving"));
+    }
+
+    public List<String> getMovingNodes() {
+        return unmodifiableList(getNodes("moving"));
+    }
+
+    /*
+     * Ring data is kept in the compact TokenRing/RangeReplicaMap form when
+     * the tokens are Murmur3 ones, and as plain (normalized) maps otherwise.
+     * The maps handed out over JMX are built from the compact form on each
+     * call and not kept, so that only the compact form stays in memory.
+     */
+    private Object getRing(Topology t) {
+        return t.get("tokens_endpoint", () -> {
+            Map<String, String> map = client.getMapStrValue("/storage_service/tokens_endpoint");
+            TokenRing ring = TokenRing.from(map);
+            if (ring != null) {
+                return ring;
+            }
+            Map<String, String> res = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+            for (Map.Entry<String, String> e : map.entrySet()) {
+                res.put(e.getKey(), InetAddressUtils.normalize(e.getValue()));
+            }
+            return unmodifiableMap(res);
+        });
+    }
+
+    /**
+     * The token ring, or <code>null</code> if the cluster does not use long
+     * (Murmur3) tokens.
+     */
+    public TokenRing getTokenRing() {
+        Object ring = getRing(validate());
+        return ring instanceof TokenRing ? (TokenRing) ring : null;
+    }
+
+    /** token -> endpoint, in ascending token order */
+    @SuppressWarnings("unchecked")
+    public Map<String, String> getTokenToEndpointMap() {
+        Topology t = validate();
+        Object ring = getRing(t);
+        if (ring instanceof TokenRing) {
+            return unmodifiableMap(((TokenRing) ring).toTokenToEndpointMap());
+        }
+        return (Map<String, String>) ring;
+    }
+
+    private Object getRangeMap(Topology t, String key, String url, MultivaluedMap<String, String> queryParams) {
+        return t.get(key, () -> {
+            Map<List<String>, List<String>> map = client.getMapListStrValue(url, queryParams);
+            RangeReplicaMap ranges = RangeReplicaMap.from(map);
+            if (ranges != null) {
+                return ranges;
+            }
+            Map<List<String>, List<String>> res = new HashMap<>(map.size() * 4 / 3 + 1);
+            for (Map.Entry<List<String>, List<String>> e : map.entrySet()) {
+                res.put(unmodifiableList(e.getKey()), unmodifiableList(normalize(e.getValue())));
+            }
+            return unmodifiableMap(res);
+        });
+    }
+
+    /**
+     * The range map under the given key, materialized on each call if held
+     * in compact form.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<List<String>, List<String>> getRangeMapView(String key, String url,
+            MultivaluedMap<String, String> queryParams) {
+        Topology t = validate();
+        Object ranges = getRangeMap(t, key, url, queryParams);
+        if (ranges instanceof RangeReplicaMap) {
+            return unmodifiableMap(((RangeReplicaMap) ranges).toMap());
+        }
+        return (Map<List<String>, List<String>>) ranges;
+    }
+
+    /**
+     * The range -> replicas map of the given keyspace, or <code>null</code>
+     * if the cluster does not use long (Murmur3) tokens.
+     */
+    public RangeReplicaMap getRangeReplicaMap(String keyspace) {
+        Object ranges = getRangeMap(validate(), "range_to_endpoint_map:" + keyspace,
+                "/storage_service/range_to_endpoint_map/" + keyspace, null);
+        return ranges instanceof RangeReplicaMap ? (RangeReplicaMap) ranges : null;
+    }
+
+    public Map<List<String>, List<String>> getRangeToEndpointMap(String keyspace) {
+        return getRangeMapView("range_to_endpoint_map:" + keyspace,
+                "/storage_service/range_to_endpoint_map/" + keyspace, null);
+    }
+
+    public Map<List<String>, List<String>> getRangeToRpcaddressMap(String keyspace) {
+        MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
+        queryParams.add("rpc", "true");
+        return getRangeMapView("range_rpc:" + keyspace, "/storage_service/range/" + keyspace, queryParams);
+    }
+
+    public Map<List<String>, List<String>> getPendingRangeToEndpointMap(String keyspace) {
+        return getRangeMapView("pending_range:" + keyspace, "/storage_service/pending_range/" + keyspace, null);
+    }
+
+    private static void appendEndpoints(StringBuilder sb, JsonArray endpoints) {
+        for (int j = 0; j < endpoints.size(); j++) {
+            if (j > 0) {
+                sb.append(", ");
+            }
+            sb.append(InetAddressUtils.normalize(endpoints.getString(j)));
+        }
+    }
+
+    /**
+     * The token ranges of the given keyspace, as TokenRange strings (see
+     * describe_ring).
+     */
+    public List<String> describeRing(String keyspace) {
+        return validate().get("describe_ring:" + keyspace, () -> {
+            JsonArray arr = client.getJsonArray("/storage_service/describe_ring/" + keyspace);
+            List<String> res = new ArrayList<String>(arr.size());
+
+            for (int i = 0; i < arr.size(); i++) {
+                JsonObject obj = arr.getJsonObject(i);
+                StringBuilder sb = new StringBuilder();
+                sb.append("TokenRange(");
+                sb.append("start_token:");
+                sb.append(obj.getString("start_token"));
+                sb.append(", end_token:");
+                sb.append(obj.getString("end_token"));
+                sb.append(", endpoints:[");
+                appendEndpoints(sb, obj.getJsonArray("endpoints"));
+                sb.append("], rpc_endpoints:[");
+                appendEndpoints(sb, obj.getJsonArray("rpc_endpoints"));
+                sb.append("], endpoint_details:[");
+                JsonArray endpoint_details = obj.getJsonArray("endpoint_details");
+                for (int j = 0; j < endpoint_details.size(); j++) {
+                    JsonObject detail = endpoint_details.getJsonObject(j);
+                    if (j > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append("EndpointDetails(");
+                    sb.append("host:");
+                    sb.append(detail.getString("host"));
+                    sb.append(", datacenter:");
+                    sb.append(detail.getString("datacenter"));
+                    sb.append(", rack:");
+                    sb.append(detail.getString("rack"));
+                    sb.append(')');
+                }
+                sb.append("])");
+                res.add(sb.toString());
+            }
+            return unmodifiableList(res);
+        });
+    }
+
+    private static List<String> normalize(List<String> list) {
+        List<String> res = new ArrayList<>(list.size());
+        for (String s : list) {
+            res.add(InetAddressUtils.normalize(s));
+        }
+        return res;
+    }
+}
@@ -27,6 +27,7 @@ package org.apache.cassandra.metrics;
 import javax.management.MalformedObjectNameException;
 
 import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.net.MessagingTelemetry;
 
 /**
  * Metrics for dropped messages by verb.
@@ -42,8 +43,8 @@ public class DroppedMessageMetrics implements Metrics {
     public void register(MetricsRegistry registry) throws MalformedObjectNameException {
         MetricNameFactory factory = new DefaultNameFactory("DroppedMessage", verb.toString());
         /** Number of dropped messages */
-        // TODO: this API url does not exist. Add meter calls for verbs.
-        registry.register(() -> registry.meter("/messaging_service/messages/dropped/" + verb),
+        registry.register(
+                () -> registry.meter(c -> MessagingTelemetry.getInstance(c).getDroppedMeter(verb)),
                 factory.createMetricName("Dropped"));
 
     }
@@ -142,6 +142,19 @@ public class MetricsRegistry {
         };
     }
 
+    /**
+     * A counter whose value is computed in the proxy rather than read from
+     * the server.
+     */
+    public MetricMBean localCounter(final Function<APIClient, Long> function) {
+        return new JmxCounter(null) {
+            @Override
+            public long getCount() {
+                return function.apply(client);
+            }
+        };
+    }
+
     private abstract class IntermediatelyUpdated {
         private final long interval;
         private final Supplier<JsonObject> supplier;
@@ -173,7 +186,10 @@ public class MetricsRegistry {
         }
     }
 
-    private static class Meter {
+    /**
+     * Meter values, as reported over JMX.
+     */
+    public static class Meter {
         public final long count;
         public final double oneMinuteRate;
         public final double fiveMinuteRate;
@@ -273,6 +289,56 @@ public class MetricsRegistry {
         return new JmxMeter(url, CACHE_DURATION);
     }
 
+    private class LocalMeter implements JmxMeterMBean {
+        private final Supplier<Meter> supplier;
+
+        public LocalMeter(Supplier<Meter> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public long getCount() {
+            return supplier.get().count;
+        }
+
+        @Override
+        public double getMeanRate() {
+            return supplier.get().meanRate;
+        }
+
+        @Override
+        public double getOneMinuteRate() {
+            return supplier.get().oneMinuteRate;
+        }
+
+        @Override
+        public double getFiveMinuteRate() {
+            return supplier.get().fiveMinuteRate;
+        }
+
+        @Override
+        public double getFifteenMinuteRate() {
+            return supplier.get().fifteenMinuteRate;
+        }
+
+        @Override
+        public String getRateUnit() {
+            return "event/" + unitString(RATE_UNIT);
+        }
+    }
+
+    /**
+     * A meter whose values are computed in the proxy rather than by the
+     * server.
+     */
+    public MetricMBean meter(Supplier<Meter> supplier) {
+        return new LocalMeter(supplier);
+    }
+
+    public MetricMBean meter(Function<APIClient, Meter> function) {
+        return meter(() -> function.apply(client));
+    }
+
     private static long[] asLongArray(JsonArray a) {
         return a.getValuesAs(JsonNumber.class).stream().mapToLong(n -> n.longValue()).toArray();
     }
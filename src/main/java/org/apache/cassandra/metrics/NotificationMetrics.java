@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.metrics;
+
+import static java.util.Arrays.asList;
+
+import javax.management.MalformedObjectNameException;
+
+import org.apache.cassandra.gms.FailureDetector;
+import org.apache.cassandra.repair.RepairScheduler;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.streaming.StreamManager;
+
+import com.scylladb.jmx.metrics.MetricsService;
+import com.scylladb.jmx.utils.BoundedNotificationBroadcaster;
+import com.scylladb.jmx.utils.BoundedNotificationBroadcaster.Stats;
+
+/**
+ * Dispatch metrics of the notification emitting MBeans, scoped by MBean.
+ */
+public class NotificationMetrics implements Metrics {
+    private static final Iterable<String> EMITTERS = asList(StorageService.NOTIFICATIONS,
+            StreamManager.NOTIFICATIONS, RepairScheduler.NOTIFICATIONS, FailureDetector.NOTIFICATIONS,
+            MetricsService.NOTIFICATIONS);
+
+    @Override
+    public void register(MetricsRegistry registry) throws MalformedObjectNameException {
+        for (String emitter : EMITTERS) {
+            Stats stats = BoundedNotificationBroadcaster.getStats(emitter);
+            MetricNameFactory factory = new DefaultNameFactory("Notifications", emitter);
+            registry.register(() -> registry.gauge(stats::getQueueDepth), factory.createMetricName("QueueDepth"));
+            registry.register(() -> registry.localCounter(c -> stats.getDropped()),
+                    factory.createMetricName("Dropped"));
+            registry.register(() -> registry.localCounter(c -> stats.getCoalesced()),
+                    factory.createMetricName("Coalesced"));
+        }
+    }
+}
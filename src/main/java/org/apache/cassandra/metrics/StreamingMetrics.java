@@ -26,17 +26,21 @@ package org.apache.cassandra.metrics;
 import static java.util.Arrays.asList;
 import static org.apache.cassandra.metrics.DefaultNameFactory.createMetricName;
 
-import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
-import javax.json.JsonArray;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 import javax.management.OperationsException;
 
+import org.apache.cassandra.streaming.StreamMonitor;
+import org.apache.cassandra.streaming.StreamMonitor.Snapshot;
+import org.apache.cassandra.streaming.StreamMonitor.Traffic;
+
 import com.scylladb.jmx.api.APIClient;
 import com.scylladb.jmx.metrics.APIMBean;
 import com.scylladb.jmx.metrics.RegistrationChecker;
@@ -50,12 +54,16 @@ public class StreamingMetrics {
     public static final String TYPE_NAME = "Streaming";
 
     private static final HashSet<ObjectName> globalNames;
+    private static final String[] PEER_NAMES = { "IncomingBytes", "OutgoingBytes", "IncomingBytesRate",
+            "OutgoingBytesRate" };
 
     static {
         try {
             globalNames = new HashSet<ObjectName>(asList(createMetricName(TYPE_NAME, "ActiveOutboundStreams", null),
                     createMetricName(TYPE_NAME, "TotalIncomingBytes", null),
-                    createMetricName(TYPE_NAME, "TotalOutgoingBytes", null)));
+                    createMetricName(TYPE_NAME, "TotalOutgoingBytes", null),
+                    createMetricName(TYPE_NAME, "TotalIncomingBytesRate", null),
+                    createMetricName(TYPE_NAME, "TotalOutgoingBytesRate", null)));
         } catch (MalformedObjectNameException e) {
             throw new Error(e);
         }
@@ -68,19 +76,32 @@ public class StreamingMetrics {
         return TYPE_NAME.equals(n.getKeyProperty("type"));
     }
     
+	private static Traffic traffic(APIClient client, String peer) {
+		Snapshot snapshot = StreamMonitor.getInstance(client).getSnapshot();
+		return peer == null ? snapshot.getTotalTraffic() : snapshot.getTraffic(peer);
+	}
+
+	private static String scoped(String url, String scope) {
+		return scope == null ? url : url + "/" + scope;
+	}
+
+	/**
+	 * Byte counts are the server's cumulative counters. Rates are computed
+	 * from the stream state polled by {@link StreamMonitor}, which also
+	 * decides which peer scopes exist: those of the peers currently
+	 * streaming, so a peer's metrics go away with its last session.
+	 */
 	public static RegistrationChecker createRegistrationChecker() {
-		return new RegistrationChecker() {			
+		return new RegistrationChecker() {
 			@Override
 			protected void doCheck(APIClient client, JmxMBeanServer server, EnumSet<RegistrationMode> mode) throws OperationsException, UnknownHostException {
 				Set<ObjectName> all = new HashSet<ObjectName>(globalNames);
-				JsonArray streams = client.getJsonArray("/stream_manager/");
-				for (int i = 0; i < streams.size(); i++) {
-					JsonArray sessions = streams.getJsonObject(i).getJsonArray("sessions");
-					for (int j = 0; j < sessions.size(); j++) {
-						String peer = sessions.getJsonObject(j).getString("peer");
-						String scope = InetAddress.getByName(peer).getHostAddress().replaceAll(":", ".");
-						all.add(createMetricName(TYPE_NAME, "IncomingBytes", scope));
-						all.add(createMetricName(TYPE_NAME, "OutgoingBytes", scope));
+				Map<String, String> peers = new HashMap<>();
+				for (String peer : StreamMonitor.getInstance(client).getSnapshot().getTraffic().keySet()) {
+					String scope = peer.replaceAll(":", ".");
+					peers.put(scope, peer);
+					for (String name : PEER_NAMES) {
+						all.add(createMetricName(TYPE_NAME, name, scope));
 					}
 				}
 
@@ -88,22 +109,26 @@ public class StreamingMetrics {
 				APIMBean.checkRegistration(server, all, mode, StreamingMetrics::isStreamingName, n -> {
 					String scope = n.getKeyProperty("scope");
 					String name = n.getKeyProperty("name");
+					String peer = scope == null ? null : peers.get(scope);
 
-					String url = null;
-					if ("ActiveOutboundStreams".equals(name)) {
-						url = "/stream_manager/metrics/outbound";
-					} else if ("IncomingBytes".equals(name) || "TotalIncomingBytes".equals(name)) {
-						url = "/stream_manager/metrics/incoming";
-					} else if ("OutgoingBytes".equals(name) || "TotalOutgoingBytes".equals(name)) {
-						url = "/stream_manager/metrics/outgoing";
-					}
-					if (url == null) {
+					switch (name) {
+					case "ActiveOutboundStreams":
+						return registry.counter("/stream_manager/metrics/outbound");
+					case "IncomingBytes":
+					case "TotalIncomingBytes":
+						return registry.counter(scoped("/stream_manager/metrics/incoming", scope));
+					case "OutgoingBytes":
+					case "TotalOutgoingBytes":
+						return registry.counter(scoped("/stream_manager/metrics/outgoing", scope));
+					case "IncomingBytesRate":
+					case "TotalIncomingBytesRate":
+						return registry.gauge(c -> traffic(c, peer).incomingRate);
+					case "OutgoingBytesRate":
+					case "TotalOutgoingBytesRate":
+						return registry.gauge(c -> traffic(c, peer).outgoingRate);
+					default:
 						throw new IllegalArgumentException();
 					}
-					if (scope != null) {
-						url = url + "/" + scope;
-					}
-					return registry.counter(url);
 				});
 			}
 		};
@@ -27,25 +27,63 @@ import static java.util.Collections.emptyMap;
 import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import javax.json.JsonArray;
-import javax.json.JsonObject;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
 
 import org.apache.cassandra.metrics.DroppedMessageMetrics;
+import org.apache.cassandra.net.MessagingTelemetry.Sample;
+import org.apache.cassandra.net.QueueDepthSampler.Queue;
+import org.apache.cassandra.net.QueueDepthSampler.Stats;
 
+import com.google.common.base.Throwables;
 import com.scylladb.jmx.api.APIClient;
 import com.scylladb.jmx.metrics.MetricsMBean;
+import com.scylladb.jmx.utils.CallerCursors;
 
 public final class MessagingService extends MetricsMBean implements MessagingServiceMBean {
     public static final String MBEAN_NAME = "org.apache.cassandra.net:type=MessagingService";
     private static final Logger logger = Logger.getLogger(MessagingService.class.getName());
 
-    private Map<String, Long> resentTimeouts = new HashMap<String, Long>();
-    private long recentTimeoutCount;
+    private static final String[] PENDING_ITEM_NAMES = new String[] { "peer", "queue", "window_ms", "samples", "max",
+            "mean", "p50", "p95", "p99" };
+
+    private static final String[] PENDING_ITEM_DESCS = new String[] { "peer address", "command or response",
+            "sampling window in ms", "number of samples", "maximum pending tasks", "mean pending tasks",
+            "median pending tasks", "95th percentile of pending tasks", "99th percentile of pending tasks" };
+
+    private static final CompositeType PENDING_COMPOSITE_TYPE;
+
+    private static final TabularType PENDING_TABULAR_TYPE;
+
+    static {
+        try {
+            OpenType<?>[] itemTypes = new OpenType[] { SimpleType.STRING, SimpleType.STRING, SimpleType.LONG,
+                    SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.DOUBLE, SimpleType.INTEGER,
+                    SimpleType.INTEGER, SimpleType.INTEGER };
+
+            PENDING_COMPOSITE_TYPE = new CompositeType("PendingTasksDistribution", "PendingTasksDistribution",
+                    PENDING_ITEM_NAMES, PENDING_ITEM_DESCS, itemTypes);
+
+            PENDING_TABULAR_TYPE = new TabularType("PendingTasksDistribution", "PendingTasksDistribution",
+                    PENDING_COMPOSITE_TYPE, new String[] { "peer", "queue" });
+        } catch (OpenDataException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    // per client baselines of the "recent" attributes
+    private final CallerCursors<Sample> cursors = new CallerCursors<>();
 
     /* All verb handler identifiers */
     public enum Verb {
@@ -75,6 +113,10 @@ public final class MessagingService extends MetricsMBean implements MessagingSer
         logger.finest(str);
     }
 
+    private MessagingTelemetry telemetry() {
+        return MessagingTelemetry.getInstance(client);
+    }
+
     public MessagingService(APIClient client) {
         super(MBEAN_NAME, client,
                 Stream.of(Verb.values()).map(v -> new DroppedMessageMetrics(v)).collect(Collectors.toList()));
@@ -86,7 +128,7 @@ public final class MessagingService extends MetricsMBean implements MessagingSer
     @Override
     public Map<String, Integer> getCommandPendingTasks() {
         log(" getCommandPendingTasks()");
-        return client.getMapStringIntegerValue("/messaging_service/messages/pending");
+        return telemetry().getSample().getPending();
     }
 
     /**
@@ -114,7 +156,7 @@ public final class MessagingService extends MetricsMBean implements MessagingSer
     @Override
     public Map<String, Integer> getResponsePendingTasks() {
         log(" getResponsePendingTasks()");
-        return client.getMapStringIntegerValue("/messaging_service/messages/respond_pending");
+        return telemetry().getSample().getRespondPending();
     }
 
     /**
@@ -133,15 +175,30 @@ public final class MessagingService extends MetricsMBean implements MessagingSer
     public Map<String, Integer> getDroppedMessages() {
         log(" getDroppedMessages()");
         Map<String, Integer> res = new HashMap<String, Integer>();
-        JsonArray arr = client.getJsonArray("/messaging_service/messages/dropped_by_ver");
-        for (int i = 0; i < arr.size(); i++) {
-            JsonObject obj = arr.getJsonObject(i);
-            res.put(obj.getString("verb"), obj.getInt("count"));
+        for (Map.Entry<String, Long> e : telemetry().getSample().getDropped().entrySet()) {
+            res.put(e.getKey(), e.getValue().intValue());
         }
         return res;
     }
 
-    private Map<String, Integer> recent;
+    private static <V> Map<String, V> delta(Map<String, Long> current, Map<String, Long> previous,
+            Function<Long, V> valueOf) {
+        Map<String, V> result = new HashMap<>();
+        for (Map.Entry<String, Long> e : current.entrySet()) {
+            Long old = previous == null ? null : previous.get(e.getKey());
+            long value = e.getValue() - (old == null ? 0 : old);
+            result.put(e.getKey(), valueOf.apply(value));
+        }
+        return result;
+    }
+
+    private static long total(Map<String, Long> timeouts) {
+        long res = 0;
+        for (Long t : timeouts.values()) {
+            res += t;
+        }
+        return res;
+    }
 
     /**
      * dropped message counts since last called
@@ -149,18 +206,15 @@ public final class MessagingService extends MetricsMBean implements MessagingSer
     @Override
     public Map<String, Integer> getRecentlyDroppedMessages() {
         log(" getRecentlyDroppedMessages()");
+        return getRecentlyDroppedMessages(null);
+    }
 
-        Map<String, Integer> dropped = getDroppedMessages(), result = new HashMap<>(dropped), old = recent;
-
-        recent = dropped;
-
-        if (old != null) {
-            for (Map.Entry<String, Integer> e : old.entrySet()) {
-                result.put(e.getKey(), result.get(e.getKey()) - e.getValue());
-            }
-        }
-
-        return result;
+    @Override
+    public Map<String, Integer> getRecentlyDroppedMessages(String client) {
+        log(" getRecentlyDroppedMessages(String client)");
+        Sample current = telemetry().getSample();
+        Sample previous = cursors.swap(client, "dropped", current);
+        return delta(current.getDropped(), previous == null ? null : previous.getDropped(), Long::intValue);
     }
 
     /**
@@ -169,12 +223,7 @@ public final class MessagingService extends MetricsMBean implements MessagingSer
     @Override
     public long getTotalTimeouts() {
         log(" getTotalTimeouts()");
-        Map<String, Long> timeouts = getTimeoutsPerHost();
-        long res = 0;
-        for (Entry<String, Long> t : timeouts.entrySet()) {
-            res += t.getValue();
-        }
-        return res;
+        return total(getTimeoutsPerHost());
     }
 
     /**
@@ -183,7 +232,7 @@ public final class MessagingService extends MetricsMBean implements MessagingSer
     @Override
     public Map<String, Long> getTimeoutsPerHost() {
         log(" getTimeoutsPerHost()");
-        return client.getMapStringLongValue("/messaging_service/messages/timeout");
+        return telemetry().getSample().getTimeouts();
     }
 
     /**
@@ -192,10 +241,15 @@ public final class MessagingService extends MetricsMBean implements MessagingSer
     @Override
     public long getRecentTotalTimouts() {
         log(" getRecentTotalTimouts()");
-        long timeoutCount = getTotalTimeouts();
-        long recent = timeoutCount - recentTimeoutCount;
-        recentTimeoutCount = timeoutCount;
-        return recent;
+        return getRecentTotalTimouts(null);
+    }
+
+    @Override
+    public long getRecentTotalTimouts(String client) {
+        log(" getRecentTotalTimouts(String client)");
+        Sample current = telemetry().getSample();
+        Sample previous = cursors.swap(client, "total_timeouts", current);
+        return total(current.getTimeouts()) - (previous == null ? 0 : total(previous.getTimeouts()));
     }
 
     /**
@@ -204,13 +258,49 @@ public final class MessagingService extends MetricsMBean implements MessagingSer
     @Override
     public Map<String, Long> getRecentTimeoutsPerHost() {
         log(" getRecentTimeoutsPerHost()");
-        Map<String, Long> timeouts = getTimeoutsPerHost();
-        Map<String, Long> result = new HashMap<String, Long>();
-        for (Entry<String, Long> e : timeouts.entrySet()) {
-            long res = e.getValue().longValue()
-                    - ((resentTimeouts.containsKey(e.getKey())) ? (resentTimeouts.get(e.getKey())).longValue() : 0);
-            resentTimeouts.put(e.getKey(), e.getValue());
-            result.put(e.getKey(), res);
+        return getRecentTimeoutsPerHost(null);
+    }
+
+    @Override
+    public Map<String, Long> getRecentTimeoutsPerHost(String client) {
+        log(" getRecentTimeoutsPerHost(String client)");
+        Sample current = telemetry().getSample();
+        Sample previous = cursors.swap(client, "timeouts", current);
+        return delta(current.getTimeouts(), previous == null ? null : previous.getTimeouts(), Long::valueOf);
+    }
+
+    private Map<String, Integer> getPendingTasksMax(Queue queue) {
+        Map<String, Integer> res = new HashMap<>();
+        for (Map.Entry<String, Stats> e : QueueDepthSampler.getInstance(client).getStats(queue).entrySet()) {
+            res.put(e.getKey(), e.getValue().max);
+        }
+        return res;
+    }
+
+    @Override
+    public Map<String, Integer> getCommandPendingTasksMax() {
+        log(" getCommandPendingTasksMax()");
+        return getPendingTasksMax(Queue.COMMAND);
+    }
+
+    @Override
+    public Map<String, Integer> getResponsePendingTasksMax() {
+        log(" getResponsePendingTasksMax()");
+        return getPendingTasksMax(Queue.RESPONSE);
+    }
+
+    @Override
+    public TabularData getPendingTasksDistribution() throws OpenDataException {
+        log(" getPendingTasksDistribution()");
+        TabularDataSupport result = new TabularDataSupport(PENDING_TABULAR_TYPE);
+        QueueDepthSampler sampler = QueueDepthSampler.getInstance(client);
+        for (Queue queue : Queue.values()) {
+            for (Map.Entry<String, Stats> e : sampler.getStats(queue).entrySet()) {
+                Stats stats = e.getValue();
+                result.put(new CompositeDataSupport(PENDING_COMPOSITE_TYPE, PENDING_ITEM_NAMES,
+                        new Object[] { e.getKey(), queue.name().toLowerCase(), sampler.getWindow(), stats.samples,
+                                stats.max, stats.mean, stats.p50, stats.p95, stats.p99 }));
+            }
         }
         return result;
     }
@@ -27,6 +27,9 @@ package org.apache.cassandra.net;
 import java.net.UnknownHostException;
 import java.util.Map;
 
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.TabularData;
+
 /**
  * MBean exposing MessagingService metrics. - OutboundConnectionPools -
  * Command/Response - Pending/Completed Tasks
@@ -112,6 +115,13 @@ public interface MessagingServiceMBean {
      */
     public Map<String, Integer> getRecentlyDroppedMessages();
 
+    /**
+     * dropped message counts since last called with the same client token.
+     * Monitoring clients that must not disturb each other's deltas pass a
+     * token unique to them.
+     */
+    public Map<String, Integer> getRecentlyDroppedMessages(String client);
+
     /**
      * Total number of timeouts happened on this node
      */
@@ -141,10 +151,40 @@ public interface MessagingServiceMBean {
      */
     public long getRecentTotalTimouts();
 
+    /**
+     * Number of timeouts since last check with the same client token, as
+     * {@link #getRecentlyDroppedMessages(String)}.
+     */
+    public long getRecentTotalTimouts(String client);
+
     /**
      * Number of timeouts since last check per host.
      */
     public Map<String, Long> getRecentTimeoutsPerHost();
 
+    /**
+     * Number of timeouts since last check with the same client token per
+     * host, as {@link #getRecentlyDroppedMessages(String)}.
+     */
+    public Map<String, Long> getRecentTimeoutsPerHost(String client);
+
     public int getVersion(String address) throws UnknownHostException;
+
+    /**
+     * Maximum pending Command TCP connection tasks per host over the sampling
+     * window.
+     */
+    public Map<String, Integer> getCommandPendingTasksMax();
+
+    /**
+     * Maximum pending Response TCP connection tasks per host over the
+     * sampling window.
+     */
+    public Map<String, Integer> getResponsePendingTasksMax();
+
+    /**
+     * Max, mean and percentiles of the pending Command and Response tasks per
+     * host, sampled at a high frequency over a sliding window.
+     */
+    public TabularData getPendingTasksDistribution() throws OpenDataException;
 }
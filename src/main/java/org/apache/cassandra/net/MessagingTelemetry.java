@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.net;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+
+import org.apache.cassandra.metrics.MetricsRegistry.Meter;
+import org.apache.cassandra.net.MessagingService.Verb;
+import org.apache.cassandra.net.QueueDepthSampler.Queue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.scylladb.jmx.api.APIClient;
+
+/**
+ * Samples the messaging service counters (dropped messages per verb,
+ * timeouts and pending messages per peer) with one set of bulk requests per
+ * {@link #SAMPLE_INTERVAL} ms, and derives the per verb dropped message
+ * rates from the samples. The pending messages are taken from the
+ * {@link QueueDepthSampler} when it is sampling, so that they are not fetched
+ * twice.
+ * <p>
+ * Sampling starts on first use of {@link #getSample} and stops after
+ * {@link #IDLE_TIMEOUT} ms without reads. The dropped message meters do not
+ * start it: reading one refreshes the dropped counts alone, at most once
+ * per {@link #SAMPLE_INTERVAL} ms. Rates are exponentially weighted moving
+ * averages over 1, 5 and 15 minutes, as in the metrics library meters.
+ * <p>
+ * Scylla has its own verbs, so the meter of a Cassandra verb sums the
+ * dropped counts of the Scylla verbs doing its work, see
+ * {@link #scyllaVerbs}.
+ */
+public class MessagingTelemetry {
+    private static final Logger logger = Logger.getLogger(MessagingTelemetry.class.getName());
+
+    static final long SAMPLE_INTERVAL = Long.getLong("scylla.jmx.messaging.sample_interval_ms", 1000);
+    static final long IDLE_TIMEOUT = Long.getLong("scylla.jmx.messaging.idle_timeout_ms", 15 * 60 * 1000);
+
+    private static final double[] WINDOWS = { 60, 5 * 60, 15 * 60 };
+    private static final Meter NO_METER = new Meter();
+
+    private static final Map<APIClient, MessagingTelemetry> instances = new WeakHashMap<>();
+
+    private static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("messaging-sampler").build());
+
+    public static synchronized MessagingTelemetry getInstance(APIClient client) {
+        return instances.computeIfAbsent(client, MessagingTelemetry::new);
+    }
+
+    private static final Map<Verb, List<String>> SCYLLA_VERBS = new EnumMap<>(Verb.class);
+
+    static {
+        // Scylla does not tell range and paged reads from other reads
+        SCYLLA_VERBS.put(Verb.READ, asList("READ_DATA", "READ_DIGEST"));
+        SCYLLA_VERBS.put(Verb.RANGE_SLICE, asList("READ_DATA", "READ_DIGEST"));
+        SCYLLA_VERBS.put(Verb.PAGED_RANGE, asList("READ_DATA", "READ_DIGEST"));
+        SCYLLA_VERBS.put(Verb.READ_REPAIR, asList("READ_MUTATION_DATA"));
+        SCYLLA_VERBS.put(Verb.REQUEST_RESPONSE, asList("MUTATION_DONE", "MUTATION_FAILED"));
+        SCYLLA_VERBS.put(Verb.ECHO, asList("GOSSIP_ECHO"));
+        SCYLLA_VERBS.put(Verb.PAXOS_PROPOSE, asList("PAXOS_ACCEPT"));
+        SCYLLA_VERBS.put(Verb.PAXOS_COMMIT, asList("PAXOS_LEARN"));
+    }
+
+    /**
+     * The Scylla verbs counted for a Cassandra verb, by default the verb of
+     * the same name.
+     */
+    static List<String> scyllaVerbs(Verb verb) {
+        List<String> res = SCYLLA_VERBS.get(verb);
+        return res != null ? res : singletonList(verb.name());
+    }
+
+    /**
+     * One poll of the messaging service counters.
+     */
+    public static final class Sample {
+        private final long timestamp;
+        private final Map<String, Long> dropped;
+        private final Map<String, Long> timeouts;
+        private final Map<String, Integer> pending;
+        private final Map<String, Integer> respondPending;
+
+        Sample(long timestamp, Map<String, Long> dropped, Map<String, Long> timeouts, Map<String, Integer> pending,
+                Map<String, Integer> respondPending) {
+            this.timestamp = timestamp;
+            this.dropped = unmodifiableMap(dropped);
+            this.timeouts = unmodifiableMap(timeouts);
+            this.pending = unmodifiableMap(pending);
+            this.respondPending = unmodifiableMap(respondPending);
+        }
+
+        /** ms since the epoch */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /** verb -> dropped messages */
+        public Map<String, Long> getDropped() {
+            return dropped;
+        }
+
+        /** peer -> timeouts */
+        public Map<String, Long> getTimeouts() {
+            return timeouts;
+        }
+
+        /** peer -> pending command messages */
+        public Map<String, Integer> getPending() {
+            return pending;
+        }
+
+        /** peer -> pending response messages */
+        public Map<String, Integer> getRespondPending() {
+            return respondPending;
+        }
+    }
+
+    private static final class Rates {
+        private final long firstCount;
+        private final long firstTime;
+        private long lastCount;
+        private long lastTime;
+        private final double[] rates = new double[WINDOWS.length];
+
+        Rates(long count, long now) {
+            firstCount = lastCount = count;
+            firstTime = lastTime = now;
+        }
+
+        void update(long count, long now) {
+            double dt = (now - lastTime) / 1000.0;
+            if (dt <= 0) {
+                return;
+            }
+            double instant = (count - lastCount) / dt;
+            for (int i = 0; i < WINDOWS.length; ++i) {
+                double alpha = 1 - Math.exp(-dt / WINDOWS[i]);
+                rates[i] += alpha * (instant - rates[i]);
+            }
+            lastCount = count;
+            lastTime = now;
+        }
+
+        Meter toMeter() {
+            double elapsed = (lastTime - firstTime) / 1000.0;
+            double mean = elapsed > 0 ? (lastCount - firstCount) / elapsed : 0;
+            return new Meter(lastCount, rates[0], rates[1], rates[2], mean);
+        }
+    }
+
+    private final APIClient client;
+    private final Map<Verb, Rates> rates = new EnumMap<>(Verb.class);
+    private volatile Sample latest;
+    private volatile Map<Verb, Meter> meters = emptyMap();
+    private volatile long droppedRead;
+    private volatile long lastRead;
+    private volatile ScheduledFuture<?> sampler;
+
+    private MessagingTelemetry(APIClient client) {
+        this.client = client;
+    }
+
+    private void touch() {
+        lastRead = System.currentTimeMillis();
+        if (sampler == null) {
+            synchronized (this) {
+                if (sampler == null) {
+                    sampler = executor.scheduleWithFixedDelay(this::backgroundSample, SAMPLE_INTERVAL,
+                            SAMPLE_INTERVAL, MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    private void backgroundSample() {
+        synchronized (this) {
+            if (System.currentTimeMillis() - lastRead > IDLE_TIMEOUT) {
+                // nobody is looking, stop until the next read
+                sampler.cancel(false);
+                sampler = null;
+                rates.clear();
+                meters = emptyMap();
+                return;
+            }
+        }
+        try {
+            poll();
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Failed to sample messaging service", e);
+        }
+    }
+
+    /**
+     * The latest sample, at most {@link #SAMPLE_INTERVAL} ms old.
+     */
+    public Sample getSample() {
+        touch();
+        Sample s = latest;
+        if (s == null || System.currentTimeMillis() - s.timestamp >= SAMPLE_INTERVAL) {
+            synchronized (this) {
+                s = latest;
+                if (s == null || System.currentTimeMillis() - s.timestamp >= SAMPLE_INTERVAL) {
+                    s = poll();
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * The dropped message meter of the given verb, the counts at most
+     * {@link #SAMPLE_INTERVAL} ms old.
+     */
+    public Meter getDroppedMeter(Verb verb) {
+        if (System.currentTimeMillis() - droppedRead >= SAMPLE_INTERVAL) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - droppedRead >= SAMPLE_INTERVAL) {
+                    updateMeters(fetchDropped());
+                }
+            }
+        }
+        Meter m = meters.get(verb);
+        return m != null ? m : NO_METER;
+    }
+
+    private Map<String, Long> fetchDropped() {
+        Map<String, Long> dropped = new HashMap<>();
+        JsonArray arr = client.getJsonArray("/messaging_service/messages/dropped_by_ver");
+        for (int i = 0; i < arr.size(); i++) {
+            JsonObject obj = arr.getJsonObject(i);
+            dropped.put(obj.getString("verb"), obj.getJsonNumber("count").longValue());
+        }
+        return dropped;
+    }
+
+    private synchronized void updateMeters(Map<String, Long> dropped) {
+        long now = System.currentTimeMillis();
+        Map<Verb, Meter> m = new EnumMap<>(Verb.class);
+        for (Verb verb : Verb.values()) {
+            long count = 0;
+            boolean known = false;
+            for (String v : scyllaVerbs(verb)) {
+                Long c = dropped.get(v);
+                if (c != null) {
+                    count += c;
+                    known = true;
+                }
+            }
+            if (!known) {
+                continue;
+            }
+            Rates r = rates.get(verb);
+            if (r == null || count < r.lastCount) {
+                // new verb, or the server restarted
+                r = new Rates(count, now);
+                rates.put(verb, r);
+            } else {
+                r.update(count, now);
+            }
+            m.put(verb, r.toMeter());
+        }
+        meters = m;
+        droppedRead = now;
+    }
+
+    private synchronized Sample poll() {
+        Map<String, Long> dropped = fetchDropped();
+        Map<String, Long> timeouts = client.getMapStringLongValue("/messaging_service/messages/timeout");
+        QueueDepthSampler queues = QueueDepthSampler.getInstance(client);
+        Map<String, Integer> pending = queues.getRecent(Queue.COMMAND, SAMPLE_INTERVAL);
+        if (pending == null) {
+            pending = client.getMapStringIntegerValue("/messaging_service/messages/pending");
+        }
+        Map<String, Integer> respondPending = queues.getRecent(Queue.RESPONSE, SAMPLE_INTERVAL);
+        if (respondPending == null) {
+            respondPending = client.getMapStringIntegerValue("/messaging_service/messages/respond_pending");
+        }
+        updateMeters(dropped);
+        Sample s = new Sample(System.currentTimeMillis(), dropped, timeouts, pending, respondPending);
+        latest = s;
+        return s;
+    }
+}
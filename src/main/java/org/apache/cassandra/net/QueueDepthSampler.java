@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.net;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.scylladb.jmx.api.APIClient;
+
+/**
+ * Samples the pending command and response messages per peer every
+ * {@link #INTERVAL} ms, so that short queue spikes between two reads are
+ * not lost.
+ * <p>
+ * Each peer and queue has a fixed size <code>int</code> ring buffer holding
+ * the last {@link #WINDOW} ms of samples; recording does not allocate.
+ * Sampling starts on the first read, which takes a sample right away, and
+ * stops after {@link #IDLE_TIMEOUT} ms without one. While it runs,
+ * {@link MessagingTelemetry} uses its samples rather than fetching the
+ * pending messages again.
+ */
+public class QueueDepthSampler {
+    private static final Logger logger = Logger.getLogger(QueueDepthSampler.class.getName());
+
+    static final long INTERVAL = Long.getLong("scylla.jmx.messaging.queue_sample_interval_ms", 100);
+    static final long WINDOW = Long.getLong("scylla.jmx.messaging.queue_window_ms", 60000);
+    static final long IDLE_TIMEOUT = Long.getLong("scylla.jmx.messaging.queue_idle_timeout_ms", 5 * 60 * 1000);
+
+    private static final int CAPACITY = (int) Math.max(1, WINDOW / INTERVAL);
+
+    private static final Map<APIClient, QueueDepthSampler> instances = new WeakHashMap<>();
+
+    private static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("queue-depth-sampler").build());
+
+    public static synchronized QueueDepthSampler getInstance(APIClient client) {
+        return instances.computeIfAbsent(client, QueueDepthSampler::new);
+    }
+
+    public enum Queue {
+        COMMAND("/messaging_service/messages/pending"), RESPONSE("/messaging_service/messages/respond_pending");
+
+        private final String url;
+
+        Queue(String url) {
+            this.url = url;
+        }
+    }
+
+    /**
+     * Queue depth statistics over the sampled window.
+     */
+    public static final class Stats {
+        public final int samples;
+        public final int max;
+        public final double mean;
+        public final int p50;
+        public final int p95;
+        public final int p99;
+
+        Stats(int[] sorted) {
+            int n = sorted.length;
+            long sum = 0;
+            for (int v : sorted) {
+                sum += v;
+            }
+            samples = n;
+            max = n == 0 ? 0 : sorted[n - 1];
+            mean = n == 0 ? 0 : (double) sum / n;
+            p50 = percentile(sorted, 0.50);
+            p95 = percentile(sorted, 0.95);
+            p99 = percentile(sorted, 0.99);
+        }
+
+        private static int percentile(int[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int i = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+        }
+    }
+
+    private static final class Series {
+        private final int[] values = new int[CAPACITY];
+        private int position;
+        private int count;
+        // consecutive samples the peer was missing from the server's map
+        private int absent;
+
+        void add(int value) {
+            values[position] = value;
+            if (++position == CAPACITY) {
+                position = 0;
+            }
+            if (count < CAPACITY) {
+                ++count;
+            }
+        }
+
+        int[] sorted() {
+            int[] res = Arrays.copyOf(values, count);
+            Arrays.sort(res);
+            return res;
+        }
+    }
+
+    private final APIClient client;
+    private final Map<Queue, Map<String, Series>> series = new HashMap<>();
+    // the maps of the last sample, by queue, and when it was taken
+    private final Map<Queue, Map<String, Integer>> latest = new HashMap<>();
+    private long sampled;
+    private volatile long lastRead;
+    private ScheduledFuture<?> sampler;
+
+    private QueueDepthSampler(APIClient client) {
+        this.client = client;
+        for (Queue q : Queue.values()) {
+            series.put(q, new HashMap<String, Series>());
+        }
+    }
+
+    /**
+     * @return whether sampling was started.
+     */
+    private synchronized boolean touch() {
+        lastRead = System.currentTimeMillis();
+        if (sampler == null) {
+            sampler = executor.scheduleWithFixedDelay(this::backgroundSample, INTERVAL, INTERVAL, MILLISECONDS);
+            return true;
+        }
+        return false;
+    }
+
+    private void backgroundSample() {
+        synchronized (this) {
+            if (System.currentTimeMillis() - lastRead > IDLE_TIMEOUT) {
+                sampler.cancel(false);
+                sampler = null;
+                for (Map<String, Series> m : series.values()) {
+                    m.clear();
+                }
+                latest.clear();
+                return;
+            }
+        }
+        sample();
+    }
+
+    private void sample() {
+        try {
+            Map<Queue, Map<String, Integer>> pending = new HashMap<>();
+            for (Queue q : Queue.values()) {
+                pending.put(q, client.getMapStringIntegerValue(q.url));
+            }
+            record(pending);
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Failed to sample pending messages", e);
+        }
+    }
+
+    private synchronized void record(Map<Queue, Map<String, Integer>> pending) {
+        for (Map.Entry<Queue, Map<String, Integer>> e : pending.entrySet()) {
+            record(series.get(e.getKey()), e.getValue());
+        }
+        latest.putAll(pending);
+        sampled = System.currentTimeMillis();
+    }
+
+    private void record(Map<String, Series> m, Map<String, Integer> pending) {
+        for (Map.Entry<String, Integer> e : pending.entrySet()) {
+            Series s = m.get(e.getKey());
+            if (s == null) {
+                s = new Series();
+                m.put(e.getKey(), s);
+            }
+            s.add(e.getValue());
+            s.absent = 0;
+        }
+        for (Iterator<Map.Entry<String, Series>> i = m.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<String, Series> e = i.next();
+            Series s = e.getValue();
+            if (!pending.containsKey(e.getKey())) {
+                // connection gone, the queue is empty
+                s.add(0);
+                if (++s.absent >= CAPACITY) {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue depth statistics per peer over the last {@link #WINDOW} ms (or
+     * since sampling started).
+     */
+    public Map<String, Stats> getStats(Queue queue) {
+        if (touch()) {
+            sample();
+        }
+        Map<String, int[]> values = new HashMap<>();
+        synchronized (this) {
+            for (Map.Entry<String, Series> e : series.get(queue).entrySet()) {
+                values.put(e.getKey(), e.getValue().sorted());
+            }
+        }
+        Map<String, Stats> res = new HashMap<>();
+        for (Map.Entry<String, int[]> e : values.entrySet()) {
+            res.put(e.getKey(), new Stats(e.getValue()));
+        }
+        return res;
+    }
+
+    /**
+     * The pending messages per peer of the last sample if it is at most
+     * <code>maxAge</code> ms old, <code>null</code> otherwise. Does not start
+     * sampling.
+     */
+    synchronized Map<String, Integer> getRecent(Queue queue, long maxAge) {
+        Map<String, Integer> res = latest.get(queue);
+        return res != null && System.currentTimeMillis() - sampled <= maxAge ? res : null;
+    }
+
+    public long getWindow() {
+        return WINDOW;
+    }
+}
@@ -0,0 +1,618 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.repair;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanNotificationInfo;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.apache.cassandra.locator.RangeReplicaMap;
+import org.apache.cassandra.locator.SnitchTopology;
+import org.apache.cassandra.locator.TokenRing;
+import org.apache.cassandra.locator.TopologyCache;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.scylladb.jmx.api.APIClient;
+import com.scylladb.jmx.metrics.APIMBean;
+import com.scylladb.jmx.utils.BoundedNotificationBroadcaster;
+
+public class RepairScheduler extends APIMBean implements RepairSchedulerMBean, NotificationEmitter {
+    private static final Logger logger = Logger.getLogger(RepairScheduler.class.getName());
+
+    /** Name of the notification broadcaster, in metrics and configuration */
+    public static final String NOTIFICATIONS = "RepairScheduler";
+
+    // finished runs kept for getRuns()
+    private static final int MAX_FINISHED_RUNS = 100;
+
+    private static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("repair-scheduler").build());
+
+    private static final String[] ITEM_NAMES = new String[] { "run", "keyspace", "tables", "state", "segments",
+            "finished", "failed", "running", "started", "elapsed", "throughput", "eta" };
+
+    private static final String[] ITEM_DESCS = new String[] { "run id", "keyspace name", "table names",
+            "state of the run", "number of segments", "segments repaired", "segments failed for good",
+            "segments being repaired", "start time (ms since epoch)", "time since start, or run duration (ms)",
+            "segments repaired per minute", "estimated time to completion (ms), -1 if unknown" };
+
+    private static final String TYPE_NAME = "RepairRuns";
+
+    private static final String ROW_DESC = "RepairRuns";
+
+    private static final OpenType<?>[] ITEM_TYPES;
+
+    private static final CompositeType COMPOSITE_TYPE;
+
+    private static final TabularType TABULAR_TYPE;
+
+    static {
+        try {
+            ITEM_TYPES = new OpenType[] { SimpleType.INTEGER, SimpleType.STRING, SimpleType.STRING, SimpleType.STRING,
+                    SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.LONG,
+                    SimpleType.LONG, SimpleType.DOUBLE, SimpleType.LONG };
+
+            COMPOSITE_TYPE = new CompositeType(TYPE_NAME, ROW_DESC, ITEM_NAMES, ITEM_DESCS, ITEM_TYPES);
+
+            TABULAR_TYPE = new TabularType(TYPE_NAME, ROW_DESC, COMPOSITE_TYPE, new String[] { "run" });
+        } catch (OpenDataException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static enum State {
+        RUNNING, SUCCESSFUL, FAILED, CANCELLED
+    }
+
+    private static final class Segment {
+        private final Run run;
+        private final long start;
+        private final long end;
+        private final List<String> replicas;
+        private final Set<String> datacenters;
+        private int attempts;
+        // bumped on each start, so that a late outcome of a timed out
+        // attempt is ignored
+        private int generation;
+        private boolean running;
+        private long started;
+        private ScheduledFuture<?> timeout;
+
+        Segment(Run run, long start, long end, List<String> replicas, Set<String> datacenters) {
+            this.run = run;
+            this.start = start;
+            this.end = end;
+            this.replicas = replicas;
+            this.datacenters = datacenters;
+        }
+    }
+
+    private static final class Run {
+        private final int id;
+        private final String keyspace;
+        private final String[] tables;
+        private final long started = System.currentTimeMillis();
+        private final Deque<Segment> pending = new ArrayDeque<>();
+        private int segments;
+        private int finished;
+        private int failed;
+        private int running;
+        // segments waiting to be retried
+        private int retrying;
+        private long ended;
+        private State state = State.RUNNING;
+
+        Run(int id, String keyspace, String[] tables) {
+            this.id = id;
+            this.keyspace = keyspace;
+            this.tables = tables;
+        }
+
+        boolean isDone() {
+            return pending.isEmpty() && running == 0 && retrying == 0;
+        }
+    }
+
+    private final NotificationBroadcasterSupport notificationBroadcasterSupport = new BoundedNotificationBroadcaster(
+            NOTIFICATIONS, null, new MBeanNotificationInfo(new String[] { SEGMENT_FINISHED, RUN_FINISHED },
+                    Notification.class.getName(), "Repair scheduler progress"));
+    private final AtomicLong notificationSerialNumber = new AtomicLong();
+    private final AtomicInteger runIds = new AtomicInteger();
+
+    private final Map<Integer, Run> runs = new LinkedHashMap<>();
+    // number of running segments involving each node and datacenter
+    private final Map<String, Integer> nodeLoad = new HashMap<>();
+    private final Map<String, Integer> datacenterLoad = new HashMap<>();
+
+    private volatile double segmentSize = Double
+            .parseDouble(System.getProperty("scylla.jmx.repair.segment_size", "0.001"));
+    private volatile int maxParallelPerNode = Integer.getInteger("scylla.jmx.repair.max_parallel_per_node", 2);
+    private volatile int maxParallelPerDatacenter = Integer.getInteger("scylla.jmx.repair.max_parallel_per_dc", 4);
+    private volatile int maxRetries = Integer.getInteger("scylla.jmx.repair.max_retries", 3);
+    private volatile long retryDelay = Long.getLong("scylla.jmx.repair.retry_delay_ms", 30000);
+    private volatile long segmentTimeout = Long.getLong("scylla.jmx.repair.segment_timeout_ms", 60 * 60 * 1000);
+    // last time running segments were aborted by a cancel
+    private long aborted;
+
+    public RepairScheduler(APIClient client) {
+        super(client);
+    }
+
+    public void log(String str) {
+        logger.finest(str);
+    }
+
+    @Override
+    public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+        notificationBroadcasterSupport.addNotificationListener(listener, filter, handback);
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
+        notificationBroadcasterSupport.removeNotificationListener(listener);
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback)
+            throws ListenerNotFoundException {
+        notificationBroadcasterSupport.removeNotificationListener(listener, filter, handback);
+    }
+
+    @Override
+    public MBeanNotificationInfo[] getNotificationInfo() {
+        return notificationBroadcasterSupport.getNotificationInfo();
+    }
+
+    private Notification notification(String type, Run run, String message, Map<String, Object> userData) {
+        userData.put("run", run.id);
+        userData.put("keyspace", run.keyspace);
+        userData.put("state", run.state.name());
+        userData.put("segments", run.segments);
+        userData.put("finished", run.finished);
+        userData.put("failed", run.failed);
+        Notification notification = new Notification(type, getBoundName(), notificationSerialNumber.incrementAndGet(),
+                message);
+        notification.setUserData(userData);
+        return notification;
+    }
+
+    // called without the lock held
+    private void sendNotifications(List<Notification> notifications) {
+        for (Notification notification : notifications) {
+            notificationBroadcasterSupport.sendNotification(notification);
+        }
+    }
+
+    private String getLocalEndpoint() {
+        String hostId = client.getStringValue("/storage_service/hostid/local");
+        String endpoint = TopologyCache.getInstance(client).getHostIdToEndpointMap().get(hostId);
+        if (endpoint == null) {
+            throw new IllegalStateException("Unable to find the address of the local node");
+        }
+        return endpoint;
+    }
+
+    /**
+     * Splits (start, end] in pieces of at most the segment size, a fraction
+     * of the ring. The last piece gets the remainder of the division.
+     */
+    static List<long[]> split(long start, long end, double segmentSize) {
+        double fraction = TokenRing.width(start, end);
+        int pieces = (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.ceil(fraction / segmentSize)));
+        // width in tokens, unsigned. A single range covering the whole ring
+        // is split as if it were one token short.
+        long width = end - start == 0 ? -1 : end - start;
+        long step = Long.divideUnsigned(width, pieces);
+        List<long[]> res = new ArrayList<>(pieces);
+        long s = start;
+        for (int i = 0; i < pieces; ++i) {
+            long e = i == pieces - 1 ? end : s + step;
+            res.add(new long[] { s, e });
+            s = e;
+        }
+        return res;
+    }
+
+    @Override
+    public int repair(String keyspace, boolean primaryRangeOnly, String... tables) {
+        log(" repair(String keyspace, boolean primaryRangeOnly, String... tables)");
+        RangeReplicaMap ranges = TopologyCache.getInstance(client).getRangeReplicaMap(keyspace);
+        if (ranges == null) {
+            throw new UnsupportedOperationException("Repair scheduling is only supported with Murmur3 tokens");
+        }
+        TokenRing ring = TopologyCache.getInstance(client).getTokenRing();
+        String local = getLocalEndpoint();
+        SnitchTopology snitch = SnitchTopology.getInstance(client);
+
+        Run run = new Run(runIds.incrementAndGet(), keyspace, tables == null ? new String[0] : tables);
+        for (int r = 0; r < ranges.size(); ++r) {
+            List<String> replicas = ranges.replicas(r);
+            if (!replicas.contains(local)) {
+                continue;
+            }
+            // the primary replica is the owner of the range end in the token
+            // ring, the order of the replicas returned by the server is not
+            // specified
+            if (primaryRangeOnly && !local.equals(ring.primaryEndpoint(ranges.end(r)))) {
+                continue;
+            }
+            Set<String> datacenters = new HashSet<>();
+            for (String replica : replicas) {
+                datacenters.add(snitch.getDatacenter(replica));
+            }
+            for (long[] s : split(ranges.start(r), ranges.end(r), segmentSize)) {
+                run.pending.add(new Segment(run, s[0], s[1], replicas, datacenters));
+            }
+        }
+        run.segments = run.pending.size();
+        List<Notification> notifications = new ArrayList<>();
+        synchronized (this) {
+            runs.put(run.id, run);
+            if (run.isDone()) {
+                finish(run, notifications);
+            }
+            purge();
+        }
+        sendNotifications(notifications);
+        executor.execute(this::dispatch);
+        return run.id;
+    }
+
+    @Override
+    public void cancel(int id) {
+        log(" cancel(int run)");
+        List<Notification> notifications = new ArrayList<>();
+        boolean abort;
+        synchronized (this) {
+            Run run = runs.get(id);
+            if (run == null) {
+                throw new IllegalArgumentException("Unknown repair run " + id);
+            }
+            if (run.state != State.RUNNING) {
+                return;
+            }
+            run.state = State.CANCELLED;
+            run.pending.clear();
+            abort = run.running > 0;
+            if (abort) {
+                aborted = System.currentTimeMillis();
+            }
+            if (run.isDone()) {
+                finish(run, notifications);
+            }
+        }
+        sendNotifications(notifications);
+        if (abort) {
+            // the API can only abort all the repairs of the node. Segments of
+            // other runs failing because of it are retried at no cost.
+            client.post("/storage_service/force_terminate");
+        }
+    }
+
+    private void purge() {
+        int excess = runs.size() - MAX_FINISHED_RUNS;
+        for (Iterator<Run> i = runs.values().iterator(); excess > 0 && i.hasNext();) {
+            if (i.next().ended != 0) {
+                i.remove();
+                --excess;
+            }
+        }
+    }
+
+    private boolean canStart(Segment segment) {
+        for (String replica : segment.replicas) {
+            if (nodeLoad.getOrDefault(replica, 0) >= maxParallelPerNode) {
+                return false;
+            }
+        }
+        for (String dc : segment.datacenters) {
+            if (datacenterLoad.getOrDefault(dc, 0) >= maxParallelPerDatacenter) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void acquire(Segment segment, int delta) {
+        for (String replica : segment.replicas) {
+            nodeLoad.merge(replica, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+        for (String dc : segment.datacenters) {
+            datacenterLoad.merge(dc, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    /**
+     * Starts as many pending segments as the limits allow.
+     */
+    private void dispatch() {
+        List<Segment> started = new ArrayList<>();
+        synchronized (this) {
+            for (Run run : runs.values()) {
+                if (run.state != State.RUNNING) {
+                    continue;
+                }
+                for (Iterator<Segment> i = run.pending.iterator(); i.hasNext();) {
+                    Segment segment = i.next();
+                    if (canStart(segment)) {
+                        i.remove();
+                        acquire(segment, 1);
+                        ++run.running;
+                        ++segment.generation;
+                        segment.running = true;
+                        segment.started = System.currentTimeMillis();
+                        started.add(segment);
+                    }
+                }
+            }
+        }
+        for (Segment segment : started) {
+            start(segment);
+        }
+    }
+
+    private void start(Segment segment) {
+        Run run = segment.run;
+        int generation;
+        synchronized (this) {
+            generation = segment.generation;
+            segment.timeout = executor.schedule(() -> timedOut(segment, generation), segmentTimeout, MILLISECONDS);
+        }
+        try {
+            MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
+            APIClient.set_query_param(queryParams, "ranges", segment.start + ":" + segment.end);
+            if (run.tables.length > 0) {
+                APIClient.set_query_param(queryParams, "columnFamilies", APIClient.join(run.tables));
+            }
+            int cmd = client.postInt("/storage_service/repair_async/" + run.keyspace, queryParams);
+            RepairTracker.getInstance(client).track(cmd, run.keyspace)
+                    .whenComplete((success, e) -> finished(segment, generation, success != null && success));
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Failed to start repair of " + segment.start + ":" + segment.end, e);
+            finished(segment, generation, false);
+        }
+    }
+
+    private void timedOut(Segment segment, int generation) {
+        logger.warning("Repair of " + segment.start + ":" + segment.end + " of " + segment.run.keyspace
+                + " did not finish within " + segmentTimeout + " ms");
+        finished(segment, generation, false);
+    }
+
+    private void finished(Segment segment, int generation, boolean success) {
+        Run run = segment.run;
+        List<Notification> notifications = new ArrayList<>();
+        synchronized (this) {
+            if (!segment.running || segment.generation != generation) {
+                // already timed out
+                return;
+            }
+            segment.running = false;
+            segment.timeout.cancel(false);
+            acquire(segment, -1);
+            --run.running;
+            Map<String, Object> userData = new HashMap<>();
+            userData.put("start", Long.toString(segment.start));
+            userData.put("end", Long.toString(segment.end));
+            userData.put("success", success);
+            if (success) {
+                ++run.finished;
+                notifications.add(notification(SEGMENT_FINISHED, run,
+                        "Repaired " + segment.start + ":" + segment.end, userData));
+            } else if (run.state == State.RUNNING && segment.started <= aborted) {
+                // aborted by the cancel of another run
+                ++run.retrying;
+                executor.execute(() -> retry(segment));
+            } else if (segment.attempts < maxRetries && run.state == State.RUNNING) {
+                long delay = retryDelay << Math.min(segment.attempts, 20);
+                ++segment.attempts;
+                ++run.retrying;
+                executor.schedule(() -> retry(segment), delay, MILLISECONDS);
+            } else if (run.state == State.CANCELLED) {
+                // aborted by the cancel of its own run
+                notifications.add(notification(SEGMENT_FINISHED, run,
+                        "Cancelled repair of " + segment.start + ":" + segment.end, userData));
+            } else {
+                ++run.failed;
+                notifications.add(notification(SEGMENT_FINISHED, run,
+                        "Failed to repair " + segment.start + ":" + segment.end, userData));
+            }
+            if (run.isDone()) {
+                finish(run, notifications);
+            }
+        }
+        sendNotifications(notifications);
+        executor.execute(this::dispatch);
+    }
+
+    private void retry(Segment segment) {
+        Run run = segment.run;
+        List<Notification> notifications = new ArrayList<>();
+        synchronized (this) {
+            --run.retrying;
+            if (run.state == State.RUNNING) {
+                run.pending.addFirst(segment);
+            } else if (run.isDone()) {
+                finish(run, notifications);
+            }
+        }
+        sendNotifications(notifications);
+        dispatch();
+    }
+
+    // called with the lock held, the notification is sent by the caller
+    private void finish(Run run, List<Notification> notifications) {
+        if (run.ended != 0) {
+            return;
+        }
+        run.ended = System.currentTimeMillis();
+        if (run.state == State.RUNNING) {
+            run.state = run.failed == 0 ? State.SUCCESSFUL : State.FAILED;
+        }
+        notifications.add(notification(RUN_FINISHED, run,
+                "Repair run " + run.id + " " + run.state.name().toLowerCase(), new HashMap<>()));
+    }
+
+    @Override
+    public synchronized TabularData getRuns() {
+        log(" getRuns()");
+        TabularDataSupport res = new TabularDataSupport(TABULAR_TYPE);
+        long now = System.currentTimeMillis();
+        for (Run run : runs.values()) {
+            long elapsed = (run.ended != 0 ? run.ended : now) - run.started;
+            double throughput = elapsed == 0 ? 0 : run.finished * 60000.0 / elapsed;
+            long eta = -1;
+            if (run.ended != 0) {
+                eta = 0;
+            } else if (run.finished > 0) {
+                int remaining = run.segments - run.finished - run.failed;
+                eta = (long) (remaining * (double) elapsed / run.finished);
+            }
+            try {
+                res.put(new CompositeDataSupport(COMPOSITE_TYPE, ITEM_NAMES,
+                        new Object[] { run.id, run.keyspace, String.join(",", run.tables), run.state.name(),
+                                run.segments, run.finished, run.failed, run.running, run.started, elapsed, throughput,
+                                eta }));
+            } catch (OpenDataException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public double getSegmentSize() {
+        return segmentSize;
+    }
+
+    @Override
+    public void setSegmentSize(double fraction) {
+        if (fraction <= 0 || fraction > 1) {
+            throw new IllegalArgumentException("Segment size must be in (0, 1]");
+        }
+        segmentSize = fraction;
+    }
+
+    @Override
+    public int getMaxParallelPerNode() {
+        return maxParallelPerNode;
+    }
+
+    @Override
+    public void setMaxParallelPerNode(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        maxParallelPerNode = n;
+        executor.execute(this::dispatch);
+    }
+
+    @Override
+    public int getMaxParallelPerDatacenter() {
+        return maxParallelPerDatacenter;
+    }
+
+    @Override
+    public void setMaxParallelPerDatacenter(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        maxParallelPerDatacenter = n;
+        executor.execute(this::dispatch);
+    }
+
+    @Override
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    @Override
+    public void setMaxRetries(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Retries must not be negative");
+        }
+        maxRetries = n;
+    }
+
+    @Override
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    @Override
+    public void setRetryDelay(long ms) {
+        if (ms < 0) {
+            throw new IllegalArgumentException("Retry delay must not be negative");
+        }
+        retryDelay = ms;
+    }
+
+    @Override
+    public long getSegmentTimeout() {
+        return segmentTimeout;
+    }
+
+    @Override
+    public void setSegmentTimeout(long ms) {
+        if (ms <= 0) {
+            throw new IllegalArgumentException("Segment timeout must be positive");
+        }
+        segmentTimeout = ms;
+    }
+}
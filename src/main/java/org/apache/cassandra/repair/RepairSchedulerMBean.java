@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.repair;
+
+import javax.management.openmbean.TabularData;
+
+/**
+ * Repairs the ranges of a keyspace on this node in small segments, a few at
+ * a time.
+ * <p>
+ * Each token range replicated by the node is split into segments covering at
+ * most {@link #getSegmentSize()} of the ring, each repaired by its own
+ * repair command. At most {@link #getMaxParallelPerNode()} segments
+ * involving a given node, and {@link #getMaxParallelPerDatacenter()}
+ * involving a given datacenter, run at the same time. Failed segments are
+ * retried up to {@link #getMaxRetries()} times, with an exponential backoff
+ * starting at {@link #getRetryDelay()} ms. A segment not done after
+ * {@link #getSegmentTimeout()} ms counts as failed.
+ * <p>
+ * Progress is sent as {@link #SEGMENT_FINISHED} and {@link #RUN_FINISHED}
+ * notifications.
+ */
+public interface RepairSchedulerMBean {
+    public static final String OBJECT_NAME = "org.apache.cassandra.db:type=RepairScheduler";
+
+    /** A segment was repaired, failed for good, or was cancelled */
+    public static final String SEGMENT_FINISHED = "repair.segment";
+    /** All the segments of a run are done, or the run was cancelled */
+    public static final String RUN_FINISHED = "repair.run";
+
+    /**
+     * Starts repairing the given tables (all if none) of the keyspace.
+     *
+     * @param primaryRangeOnly
+     *            only repair the ranges this node is the primary replica of,
+     *            for running on every node of the cluster.
+     * @return the id of the run
+     */
+    public int repair(String keyspace, boolean primaryRangeOnly, String... tables);
+
+    /**
+     * Stops starting new segments of the run and aborts the running ones.
+     * The API can only abort all the repairs of the node, so this also aborts
+     * repairs not started by the run; segments of other runs are retried.
+     */
+    public void cancel(int run);
+
+    /**
+     * State and progress of the current and recently finished runs: segment
+     * counts, throughput (segments per minute) and estimated time to
+     * completion.
+     */
+    public TabularData getRuns();
+
+    /** Maximum fraction of the ring covered by a segment */
+    public double getSegmentSize();
+
+    public void setSegmentSize(double fraction);
+
+    public int getMaxParallelPerNode();
+
+    public void setMaxParallelPerNode(int n);
+
+    public int getMaxParallelPerDatacenter();
+
+    public void setMaxParallelPerDatacenter(int n);
+
+    public int getMaxRetries();
+
+    public void setMaxRetries(int n);
+
+    /** Delay in ms before the first retry of a failed segment */
+    public long getRetryDelay();
+
+    public void setRetryDelay(long ms);
+
+    /** Time in ms after which a running segment is considered failed */
+    public long getSegmentTimeout();
+
+    public void setSegmentTimeout(long ms);
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.repair;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.json.JsonArray;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.scylladb.jmx.api.APIClient;
+
+/**
+ * Follows the repairs started through the proxy until they finish.
+ * <p>
+ * All tracked repairs are polled together: one request for the ids of the
+ * repairs still active on the node, and a status request only for those no
+ * longer listed. The poll interval adapts to the age of the youngest repair,
+ * a tenth of it bounded by {@link #MIN_POLL_INTERVAL} and
+ * {@link #MAX_POLL_INTERVAL}, so short repairs are reported quickly while
+ * long ones cost little. Nothing is polled when no repair is tracked.
+ * <p>
+ * A repair whose status cannot be read for {@link #GIVE_UP_AFTER} ms, e.g.
+ * because the node restarted and no longer knows its id, is given up on and
+ * reported as failed. The limit is in time rather than in failed checks, as
+ * young repairs are polled several times a second.
+ */
+public class RepairTracker {
+    private static final Logger logger = Logger.getLogger(RepairTracker.class.getName());
+
+    static final long MIN_POLL_INTERVAL = Long.getLong("scylla.jmx.repair.min_poll_interval_ms", 250);
+    static final long MAX_POLL_INTERVAL = Long.getLong("scylla.jmx.repair.max_poll_interval_ms", 10000);
+    static final long GIVE_UP_AFTER = Long.getLong("scylla.jmx.repair.give_up_after_ms", 5 * 60 * 1000);
+
+    private static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("repair-tracker").build());
+
+    private static final Map<APIClient, RepairTracker> instances = new WeakHashMap<>();
+
+    public static synchronized RepairTracker getInstance(APIClient client) {
+        return instances.computeIfAbsent(client, RepairTracker::new);
+    }
+
+    private static final String[] ITEM_NAMES = new String[] { "id", "keyspace", "started", "elapsed" };
+
+    private static final String[] ITEM_DESCS = new String[] { "repair command number", "keyspace name",
+            "start time (ms since epoch)", "time since start (ms)" };
+
+    private static final String TYPE_NAME = "ActiveRepairs";
+
+    private static final String ROW_DESC = "ActiveRepairs";
+
+    private static final OpenType<?>[] ITEM_TYPES;
+
+    private static final CompositeType COMPOSITE_TYPE;
+
+    private static final TabularType TABULAR_TYPE;
+
+    static {
+        try {
+            ITEM_TYPES = new OpenType[] { SimpleType.INTEGER, SimpleType.STRING, SimpleType.LONG, SimpleType.LONG };
+
+            COMPOSITE_TYPE = new CompositeType(TYPE_NAME, ROW_DESC, ITEM_NAMES, ITEM_DESCS, ITEM_TYPES);
+
+            TABULAR_TYPE = new TabularType(TYPE_NAME, ROW_DESC, COMPOSITE_TYPE, new String[] { "id" });
+        } catch (OpenDataException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static final class Repair {
+        private final int id;
+        private final String keyspace;
+        private final long started;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        // last successful status check, only touched by the poller
+        private long lastSeen;
+
+        Repair(int id, String keyspace, long started) {
+            this.id = id;
+            this.keyspace = keyspace;
+            this.started = started;
+            this.lastSeen = started;
+        }
+    }
+
+    private final APIClient client;
+    private final Map<Integer, Repair> repairs = new ConcurrentHashMap<>();
+    private boolean polling;
+
+    private RepairTracker(APIClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Starts tracking the given repair. A repair already tracked under the
+     * same id, left over from before a restart of the node, is dropped and
+     * reported as failed.
+     *
+     * @return a future completed with <code>true</code> if the repair
+     *         succeeded, <code>false</code> if it failed.
+     */
+    public CompletableFuture<Boolean> track(int id, String keyspace) {
+        Repair repair = new Repair(id, keyspace, System.currentTimeMillis());
+        Repair old = repairs.put(id, repair);
+        if (old != null) {
+            logger.warning("Repair " + id + " of " + old.keyspace + " replaced by a new repair with the same id");
+            old.result.complete(false);
+        }
+        synchronized (this) {
+            if (!polling) {
+                polling = true;
+                executor.schedule(this::poll, MIN_POLL_INTERVAL, MILLISECONDS);
+            }
+        }
+        return repair.result;
+    }
+
+    public int getActiveCount() {
+        return repairs.size();
+    }
+
+    public TabularData getActiveRepairs() {
+        TabularDataSupport res = new TabularDataSupport(TABULAR_TYPE);
+        long now = System.currentTimeMillis();
+        for (Repair r : repairs.values()) {
+            try {
+                res.put(new CompositeDataSupport(COMPOSITE_TYPE, ITEM_NAMES,
+                        new Object[] { r.id, r.keyspace, r.started, now - r.started }));
+            } catch (OpenDataException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return res;
+    }
+
+    private String getStatus(Repair repair) {
+        MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
+        APIClient.set_query_param(queryParams, "id", Integer.toString(repair.id));
+        return client.getStringValue("/storage_service/repair_async/" + repair.keyspace, queryParams);
+    }
+
+    private void check(Repair repair) {
+        String status = getStatus(repair);
+        repair.lastSeen = System.currentTimeMillis();
+        if (!status.equals("RUNNING")) {
+            finish(repair, status.equals("SUCCESSFUL"));
+        }
+    }
+
+    private void finish(Repair repair, boolean success) {
+        repairs.remove(repair.id, repair);
+        repair.result.complete(success);
+    }
+
+    private void poll() {
+        try {
+            Set<Integer> active = null;
+            try {
+                JsonArray ids = client.getJsonArray("/storage_service/active_repair/");
+                active = new HashSet<>(ids.size() * 4 / 3 + 1);
+                for (int i = 0; i < ids.size(); i++) {
+                    active.add(ids.getInt(i));
+                }
+            } catch (Exception e) {
+                // fall back to checking each repair
+                logger.log(Level.FINE, "Failed to list active repairs", e);
+            }
+            for (Repair repair : new ArrayList<>(repairs.values())) {
+                if (active != null && active.contains(repair.id)) {
+                    repair.lastSeen = System.currentTimeMillis();
+                    continue;
+                }
+                try {
+                    check(repair);
+                } catch (Exception e) {
+                    long unseen = System.currentTimeMillis() - repair.lastSeen;
+                    if (unseen < GIVE_UP_AFTER) {
+                        logger.log(Level.FINE, "Failed to check status of repair " + repair.id, e);
+                    } else {
+                        logger.log(Level.WARNING, "Giving up on repair " + repair.id + " of " + repair.keyspace
+                                + " after " + unseen + " ms without a status", e);
+                        finish(repair, false);
+                    }
+                }
+            }
+        } finally {
+            schedule();
+        }
+    }
+
+    private synchronized void schedule() {
+        if (repairs.isEmpty()) {
+            polling = false;
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long youngest = Long.MAX_VALUE;
+        for (Repair r : repairs.values()) {
+            youngest = Math.min(youngest, now - r.started);
+        }
+        long interval = Math.max(MIN_POLL_INTERVAL, Math.min(MAX_POLL_INTERVAL, youngest / 10));
+        executor.schedule(this::poll, interval, MILLISECONDS);
+    }
+}
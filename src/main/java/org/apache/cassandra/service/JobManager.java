@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs long admin operations (compactions, cleanups, flushes...) as jobs on a
+ * bounded pool, so that callers get a job id back immediately instead of
+ * holding an RMI thread for the whole operation.
+ * <p>
+ * Submitting an operation identical to a job still pending returns that job
+ * rather than queueing the operation again, which is what a client retrying
+ * after a timeout wants. A job already running is never joined: it may have
+ * started before the writes the caller wants flushed, compacted or
+ * snapshotted. Finished jobs are kept for {@link #RETENTION} ms.
+ * <p>
+ * The blocking variants of the operations are registered as jobs too, but
+ * run on the calling thread, so they neither wait behind queued jobs nor get
+ * refused when the queue is full, as before jobs existed.
+ */
+class JobManager {
+    // the minimum, see setThreads()
+    static final int THREADS = Integer.getInteger("scylla.jmx.jobs.threads", 4);
+    static final int QUEUE_SIZE = Integer.getInteger("scylla.jmx.jobs.queue_size", 64);
+    static final long RETENTION = Long.getLong("scylla.jmx.jobs.retention_ms", 60 * 60 * 1000);
+
+    private static final String[] ITEM_NAMES = new String[] { "id", "operation", "arguments", "state", "submitted",
+            "elapsed", "result", "error" };
+
+    private static final String[] ITEM_DESCS = new String[] { "job id", "operation name", "operation arguments",
+            "job state", "submission time (ms since epoch)", "run time so far, or total (ms)",
+            "result of the operation, if any", "error message, if failed" };
+
+    private static final String TYPE_NAME = "Jobs";
+
+    private static final String ROW_DESC = "Jobs";
+
+    private static final OpenType<?>[] ITEM_TYPES;
+
+    private static final CompositeType COMPOSITE_TYPE;
+
+    private static final TabularType TABULAR_TYPE;
+
+    static {
+        try {
+            ITEM_TYPES = new OpenType[] { SimpleType.LONG, SimpleType.STRING, SimpleType.STRING, SimpleType.STRING,
+                    SimpleType.LONG, SimpleType.LONG, SimpleType.STRING, SimpleType.STRING };
+
+            COMPOSITE_TYPE = new CompositeType(TYPE_NAME, ROW_DESC, ITEM_NAMES, ITEM_DESCS, ITEM_TYPES);
+
+            TABULAR_TYPE = new TabularType(TYPE_NAME, ROW_DESC, COMPOSITE_TYPE, new String[] { "id" });
+        } catch (OpenDataException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    static enum State {
+        PENDING, RUNNING, SUCCESSFUL, FAILED
+    }
+
+    static final class Job<T> {
+        private final long id;
+        private final String operation;
+        private final String arguments;
+        private final long submitted = System.currentTimeMillis();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile State state = State.PENDING;
+        private volatile long started;
+        private volatile long finished;
+
+        Job(long id, String operation, String arguments) {
+            this.id = id;
+            this.operation = operation;
+            this.arguments = arguments;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        String getOperation() {
+            return operation;
+        }
+
+        State getState() {
+            return state;
+        }
+
+        CompletableFuture<T> getFuture() {
+            return future;
+        }
+
+        long getElapsed() {
+            long s = started;
+            if (s == 0) {
+                return 0;
+            }
+            long f = finished;
+            return (f != 0 ? f : System.currentTimeMillis()) - s;
+        }
+
+        String getResult() {
+            if (state != State.SUCCESSFUL) {
+                return null;
+            }
+            Object res = future.getNow(null);
+            return res == null ? null : res.toString();
+        }
+
+        String getError() {
+            if (state != State.FAILED) {
+                return null;
+            }
+            try {
+                future.getNow(null);
+                return null;
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+            }
+        }
+
+        CompositeData toCompositeData() {
+            try {
+                return new CompositeDataSupport(COMPOSITE_TYPE, ITEM_NAMES, new Object[] { id, operation, arguments,
+                        state.name(), submitted, getElapsed(), getResult(), getError() });
+            } catch (OpenDataException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jobs-%d").build());
+    // for jobs that must not wait behind others
+    private final ThreadFactory unqueued = new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("jobs-unqueued-%d").build();
+
+    private final Consumer<Job<?>> onFinish;
+    private final Map<Long, Job<?>> jobs = new LinkedHashMap<>();
+    // pending jobs, by operation and arguments
+    private final Map<String, Job<?>> pending = new HashMap<>();
+    private long nextId;
+
+    JobManager(Consumer<Job<?>> onFinish) {
+        this.onFinish = onFinish;
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Grows (or shrinks back) the pool to the given number of threads, never
+     * below {@link #THREADS}, so that fan-outs allowed more jobs at a time
+     * than that actually run them.
+     */
+    synchronized void setThreads(int threads) {
+        int n = Math.max(THREADS, threads);
+        if (n > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(n);
+            executor.setCorePoolSize(n);
+        } else {
+            executor.setCorePoolSize(n);
+            executor.setMaximumPoolSize(n);
+        }
+    }
+
+    static String arguments(Object... args) {
+        String s = Arrays.deepToString(args);
+        return s.substring(1, s.length() - 1);
+    }
+
+    /**
+     * Queues the operation, or returns the identical job already pending.
+     *
+     * @throws IllegalStateException
+     *             if too many jobs are queued
+     */
+    <T> Job<T> submit(String operation, String arguments, Callable<T> task) {
+        return submit(operation, arguments, task, executor);
+    }
+
+    /**
+     * Like {@link #submit}, but runs the operation on a thread of its own
+     * rather than queueing it behind other jobs.
+     */
+    <T> Job<T> submitUnqueued(String operation, String arguments, Callable<T> task) {
+        return submit(operation, arguments, task, r -> unqueued.newThread(r).start());
+    }
+
+    /**
+     * Runs the operation as a job on the calling thread. An identical job
+     * pending or running is not joined, the operation always starts after
+     * the call.
+     *
+     * @return the finished job
+     */
+    <T> Job<T> call(String operation, String arguments, Callable<T> task) {
+        Job<T> job;
+        synchronized (this) {
+            purge();
+            job = new Job<>(++nextId, operation, arguments);
+            jobs.put(job.id, job);
+        }
+        run(null, job, task);
+        return job;
+    }
+
+    private synchronized <T> Job<T> submit(String operation, String arguments, Callable<T> task, Executor executor) {
+        purge();
+        String key = key(operation, arguments);
+        Job<T> existing = getPending(key);
+        if (existing != null) {
+            return existing;
+        }
+        Job<T> job = new Job<>(++nextId, operation, arguments);
+        try {
+            executor.execute(() -> run(key, job, task));
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Too many jobs queued, try again later");
+        }
+        jobs.put(job.id, job);
+        pending.put(key, job);
+        return job;
+    }
+
+    private static String key(String operation, String arguments) {
+        return operation + "(" + arguments + ")";
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Job<T> getPending(String key) {
+        return (Job<T>) pending.get(key);
+    }
+
+    /**
+     * @param key
+     *            the key of the job among the pending ones, <code>null</code>
+     *            if not queued
+     */
+    private <T> void run(String key, Job<T> job, Callable<T> task) {
+        if (key != null) {
+            // from now on, identical submissions get a job of their own
+            synchronized (this) {
+                pending.remove(key, job);
+            }
+        }
+        job.started = System.currentTimeMillis();
+        job.state = State.RUNNING;
+        T result = null;
+        Throwable error = null;
+        try {
+            result = task.call();
+        } catch (Throwable t) {
+            error = t;
+        }
+        job.finished = System.currentTimeMillis();
+        job.state = error == null ? State.SUCCESSFUL : State.FAILED;
+        if (error == null) {
+            job.future.complete(result);
+        } else {
+            job.future.completeExceptionally(error);
+        }
+        onFinish.accept(job);
+    }
+
+    private void purge() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Job<?>> i = jobs.values().iterator(); i.hasNext();) {
+            Job<?> job = i.next();
+            if (job.finished != 0 && now - job.finished > RETENTION) {
+                i.remove();
+            }
+        }
+    }
+
+    synchronized Job<?> get(long id) {
+        Job<?> job = jobs.get(id);
+        if (job == null) {
+            throw new IllegalArgumentException("Unknown job " + id);
+        }
+        return job;
+    }
+
+    synchronized TabularData getJobs() {
+        purge();
+        TabularDataSupport res = new TabularDataSupport(TABULAR_TYPE);
+        for (Job<?> job : jobs.values()) {
+            res.put(job.toCompositeData());
+        }
+        return res;
+    }
+
+    /**
+     * Waits for the job, rethrowing what the operation threw.
+     */
+    static <T> T await(Job<T> job) throws IOException, ExecutionException, InterruptedException {
+        try {
+            return job.future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            Throwables.throwIfUnchecked(cause);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the job, for operations not declaring checked exceptions.
+     */
+    static <T> T awaitUninterruptibly(Job<T> job) {
+        try {
+            return job.future.join();
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            Throwables.throwIfUnchecked(cause);
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.jaxrs.json.JacksonJaxbJsonProvider;
+import com.google.common.base.Throwables;
+
+/**
+ * Streaming decoder of the <code>/storage_service/sstable_info</code>
+ * response.
+ * <p>
+ * The response is read one sstable at a time, filtering and paging as it
+ * goes, so that only the sstables of the current table that are actually
+ * returned are held in memory before being converted to
+ * {@link CompositeData}. Reading stops as soon as a page is complete.
+ */
+class SSTableInfoDecoder {
+    // same mapping as the one used by the REST client
+    private static final ObjectMapper mapper = new JacksonJaxbJsonProvider().locateMapper(SSTableInfo.class,
+            MediaType.APPLICATION_JSON_TYPE);
+
+    private static final String[] ITEM_NAMES = new String[] { "keyspace", "table", "sstables", "size", "data_size",
+            "index_size", "filter_size" };
+
+    private static final String[] ITEM_DESCS = new String[] { "keyspace name", "table name", "number of sstables",
+            "total size", "total data size", "total index size", "total filter size" };
+
+    private static final String TYPE_NAME = "SSTableSummary";
+
+    private static final String ROW_DESC = "SSTableSummary";
+
+    private static final OpenType<?>[] ITEM_TYPES;
+
+    private static final CompositeType COMPOSITE_TYPE;
+
+    private static final TabularType TABULAR_TYPE;
+
+    static {
+        try {
+            ITEM_TYPES = new OpenType[] { SimpleType.STRING, SimpleType.STRING, SimpleType.LONG, SimpleType.LONG,
+                    SimpleType.LONG, SimpleType.LONG, SimpleType.LONG };
+
+            COMPOSITE_TYPE = new CompositeType(TYPE_NAME, ROW_DESC, ITEM_NAMES, ITEM_DESCS, ITEM_TYPES);
+
+            TABULAR_TYPE = new TabularType(TYPE_NAME, ROW_DESC, COMPOSITE_TYPE, new String[] { "keyspace", "table" });
+        } catch (OpenDataException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Selects sstables by generation and size. Negative bounds are ignored. A
+     * generation range only matches numeric generations.
+     */
+    static final class Filter {
+        private final long minGeneration;
+        private final long maxGeneration;
+        private final long minSize;
+
+        Filter(long minGeneration, long maxGeneration, long minSize) {
+            this.minGeneration = minGeneration;
+            this.maxGeneration = maxGeneration;
+            this.minSize = minSize;
+        }
+
+        boolean test(String generation, long size) {
+            if (minSize > 0 && size < minSize) {
+                return false;
+            }
+            if (minGeneration < 0 && maxGeneration < 0) {
+                return true;
+            }
+            long g;
+            try {
+                g = Long.parseLong(generation);
+            } catch (NumberFormatException | NullPointerException e) {
+                return false;
+            }
+            return (minGeneration < 0 || g >= minGeneration) && (maxGeneration < 0 || g <= maxGeneration);
+        }
+    }
+
+    /**
+     * Per table view of the sstables being read.
+     */
+    private interface Visitor {
+        /** Reads the sstable the parser is positioned on; false stops reading */
+        boolean sstable(JsonParser p) throws IOException;
+
+        void endTable(String keyspace, String table);
+    }
+
+    private static void parse(InputStream in, Visitor visitor) {
+        try (JsonParser p = mapper.getFactory().createParser(in)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("Unexpected sstable info format");
+            }
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                String keyspace = null, table = null;
+                boolean more = true;
+                while (more && p.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = p.getCurrentName();
+                    p.nextToken();
+                    switch (name) {
+                    case "keyspace":
+                        keyspace = p.getText();
+                        break;
+                    case "table":
+                        table = p.getText();
+                        break;
+                    case "sstables":
+                        while (more && p.nextToken() == JsonToken.START_OBJECT) {
+                            more = visitor.sstable(p);
+                        }
+                        break;
+                    default:
+                        p.skipChildren();
+                        break;
+                    }
+                }
+                visitor.endTable(keyspace, table);
+                if (!more) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read sstable info: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The matching sstables, grouped per table as {@link PerTableSSTableInfo},
+     * skipping <code>offset</code> sstables and returning at most
+     * <code>limit</code> (all if not positive).
+     */
+    static List<CompositeData> decode(InputStream in, Filter filter, int offset, int limit) {
+        List<CompositeData> res = new ArrayList<>();
+        parse(in, new Visitor() {
+            private List<SSTableInfo> sstables = new ArrayList<>();
+            private int matched;
+
+            @Override
+            public boolean sstable(JsonParser p) throws IOException {
+                SSTableInfo info = mapper.readValue(p, SSTableInfo.class);
+                if (filter.test(info.getGeneration(), info.getSize()) && matched++ >= offset) {
+                    sstables.add(info);
+                }
+                return limit <= 0 || matched < offset + limit;
+            }
+
+            @Override
+            public void endTable(String keyspace, String table) {
+                if (sstables.isEmpty()) {
+                    return;
+                }
+                PerTableSSTableInfo info = new PerTableSSTableInfo();
+                info.setKeyspace(keyspace);
+                info.setTable(table);
+                info.setSSTableInfos(sstables);
+                res.add(info.toCompositeData());
+                sstables = new ArrayList<>();
+            }
+        });
+        return res;
+    }
+
+    /**
+     * Number and total sizes of the matching sstables per table, without
+     * binding the per sstable details.
+     */
+    static TabularData summarize(InputStream in, Filter filter) {
+        TabularDataSupport res = new TabularDataSupport(TABULAR_TYPE);
+        parse(in, new Visitor() {
+            private long count, size, dataSize, indexSize, filterSize;
+
+            @Override
+            public boolean sstable(JsonParser p) throws IOException {
+                String generation = null;
+                long s = 0, d = 0, i = 0, f = 0;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = p.getCurrentName();
+                    p.nextToken();
+                    switch (name) {
+                    case "generation":
+                        generation = p.getText();
+                        break;
+                    case "size":
+                        s = p.getValueAsLong();
+                        break;
+                    case "data_size":
+                        d = p.getValueAsLong();
+                        break;
+                    case "index_size":
+                        i = p.getValueAsLong();
+                        break;
+                    case "filter_size":
+                        f = p.getValueAsLong();
+                        break;
+                    default:
+                        p.skipChildren();
+                        break;
+                    }
+                }
+                if (filter.test(generation, s)) {
+                    ++count;
+                    size += s;
+                    dataSize += d;
+                    indexSize += i;
+                    filterSize += f;
+                }
+                return true;
+            }
+
+            @Override
+            public void endTable(String keyspace, String table) {
+                if (count > 0) {
+                    try {
+                        res.put(new CompositeDataSupport(COMPOSITE_TYPE, ITEM_NAMES,
+                                new Object[] { keyspace, table, count, size, dataSize, indexSize, filterSize }));
+                    } catch (OpenDataException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                count = size = dataSize = indexSize = filterSize = 0;
+            }
+        });
+        return res;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+
+import com.scylladb.jmx.api.APIClient;
+import com.scylladb.jmx.utils.SnapshotDetailsTabularData;
+
+/**
+ * The snapshots on the node, as listed by <code>/storage_service/snapshots</code>.
+ * <p>
+ * The listing is refreshed at most every {@link #TTL} ms, or on the next
+ * read after {@link #invalidate()}, which is called by every operation
+ * creating or removing snapshots through us. The {@link TabularData} of a
+ * snapshot is only built when asked for, and kept for as long as the
+ * snapshot content is unchanged.
+ */
+class SnapshotCatalog {
+    static final long TTL = Long.getLong("scylla.jmx.snapshots.ttl_ms", 10000);
+
+    private static final class Snapshot {
+        private final String tag;
+        private final JsonArray value;
+        private TabularData table;
+
+        Snapshot(String tag, JsonArray value) {
+            this.tag = tag;
+            this.value = value;
+        }
+
+        TabularData getTable() {
+            if (table == null) {
+                TabularDataSupport data = new TabularDataSupport(SnapshotDetailsTabularData.TABULAR_TYPE);
+                for (int i = 0; i < value.size(); i++) {
+                    JsonObject obj = value.getJsonObject(i);
+                    if (obj.containsKey("ks") && obj.containsKey("cf")) {
+                        SnapshotDetailsTabularData.from(tag, obj.getString("ks"), obj.getString("cf"),
+                                obj.getJsonNumber("total").longValue(), obj.getJsonNumber("live").longValue(), data);
+                    }
+                }
+                table = data;
+            }
+            return table;
+        }
+
+        Map<String, Set<String>> getKeyspaceColumnFamily() {
+            Map<String, Set<String>> kscf = new HashMap<String, Set<String>>();
+            for (int i = 0; i < value.size(); i++) {
+                JsonObject s = value.getJsonObject(i);
+                kscf.computeIfAbsent(s.getString("ks"), ks -> new HashSet<String>()).add(s.getString("cf"));
+            }
+            return kscf;
+        }
+    }
+
+    private final APIClient client;
+    private Map<String, Snapshot> snapshots = Collections.emptyMap();
+    private long lastRefresh;
+
+    SnapshotCatalog(APIClient client) {
+        this.client = client;
+    }
+
+    synchronized void invalidate() {
+        lastRefresh = 0;
+    }
+
+    private void refresh() {
+        long now = System.currentTimeMillis();
+        if (lastRefresh != 0 && now - lastRefresh < TTL) {
+            return;
+        }
+        JsonArray arr = client.getJsonArray("/storage_service/snapshots");
+        Map<String, Snapshot> res = new HashMap<>(arr.size() * 4 / 3 + 1);
+        for (int i = 0; i < arr.size(); i++) {
+            JsonObject obj = arr.getJsonObject(i);
+            if (!obj.containsKey("key") || !obj.containsKey("value")) {
+                continue;
+            }
+            String tag = obj.getString("key");
+            JsonArray value = obj.getJsonArray("value");
+            Snapshot prev = snapshots.get(tag);
+            // keep whatever was already built if the snapshot is unchanged
+            res.put(tag, prev != null && prev.value.equals(value) ? prev : new Snapshot(tag, value));
+        }
+        snapshots = res;
+        lastRefresh = now;
+    }
+
+    synchronized Map<String, TabularData> getSnapshotDetails() {
+        refresh();
+        Map<String, TabularData> res = new HashMap<>(snapshots.size() * 4 / 3 + 1);
+        for (Snapshot s : snapshots.values()) {
+            res.put(s.tag, s.getTable());
+        }
+        return res;
+    }
+
+    /**
+     * @return the details of the snapshot, or <code>null</code> if there is
+     *         no snapshot with the given tag.
+     */
+    synchronized TabularData getSnapshotDetails(String tag) {
+        refresh();
+        Snapshot s = snapshots.get(tag);
+        return s == null ? null : s.getTable();
+    }
+
+    synchronized Map<String, Map<String, Set<String>>> getSnapshotKeyspaceColumnFamily() {
+        refresh();
+        Map<String, Map<String, Set<String>>> res = new HashMap<String, Map<String, Set<String>>>();
+        for (Snapshot s : snapshots.values()) {
+            res.put(s.tag, s.getKeyspaceColumnFamily());
+        }
+        return res;
+    }
+}
@@ -31,13 +31,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
-import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.management.ObjectName;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 
 import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.SchemaCatalog;
 import org.apache.cassandra.metrics.CASClientRequestMetrics;
 import org.apache.cassandra.metrics.ClientRequestMetrics;
 
@@ -295,8 +295,6 @@ public class StorageProxy extends MetricsMBean implements StorageProxyMBean {
 
     @Override
     public int getNumberOfTables() {
-        // TODO: could be like 1000% more efficient
-        JsonArray mbeans = client.getJsonArray("/column_family/");
-        return mbeans.size();
+        return SchemaCatalog.getInstance(client).getSchema().getNumberOfTables();
     }
 }
@@ -25,6 +25,7 @@ package org.apache.cassandra.service;
 import static java.util.Arrays.asList;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
@@ -32,13 +33,11 @@ import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
@@ -63,17 +62,27 @@ import javax.management.openmbean.SimpleType;
 import javax.management.openmbean.TabularData;
 import javax.management.openmbean.TabularDataSupport;
 import javax.management.openmbean.TabularType;
-import javax.ws.rs.core.GenericType;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 
+import org.apache.cassandra.db.SchemaCatalog;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.locator.RangeReplicaMap;
+import org.apache.cassandra.locator.TokenRing;
+import org.apache.cassandra.locator.TopologyCache;
+import org.apache.cassandra.metrics.NotificationMetrics;
 import org.apache.cassandra.metrics.StorageMetrics;
 import org.apache.cassandra.repair.RepairParallelism;
+import org.apache.cassandra.repair.RepairTracker;
 
 import com.google.common.base.Joiner;
+import com.google.common.io.BaseEncoding;
 import com.scylladb.jmx.api.APIClient;
 import com.scylladb.jmx.metrics.MetricsMBean;
+import com.scylladb.jmx.utils.BoundedNotificationBroadcaster;
 import com.scylladb.jmx.utils.FileUtils;
+import com.scylladb.jmx.utils.InetAddressUtils;
 import com.google.common.base.Throwables;
 
 /**
@@ -83,7 +92,9 @@ import com.google.common.base.Throwables;
  */
 public class StorageService extends MetricsMBean implements StorageServiceMBean, NotificationBroadcaster {
     private static final Logger logger = Logger.getLogger(StorageService.class.getName());
-    private static final Timer timer = new Timer("Storage Service Repair", true);
+
+    /** Name of the notification broadcaster, in metrics and configuration */
+    public static final String NOTIFICATIONS = "StorageService";
 
     private static final String[] COUNTER_NAMES = new String[]{"raw", "count", "error", "string"};
     private static final String[] COUNTER_DESCS = new String[]
@@ -120,7 +131,8 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
         }
     }
 
-    private final NotificationBroadcasterSupport notificationBroadcasterSupport = new NotificationBroadcasterSupport();
+    private final NotificationBroadcasterSupport notificationBroadcasterSupport = new BoundedNotificationBroadcaster(
+            NOTIFICATIONS, null);
 
     @Override
     public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
@@ -154,39 +166,35 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     /* JMX notification serial number counter */
     private final AtomicLong notificationSerialNumber = new AtomicLong();
 
-    public StorageService(APIClient client) {
-        super("org.apache.cassandra.db:type=StorageService", client, new StorageMetrics());
+    private final SnapshotCatalog snapshots;
+    private final JobManager jobs;
+    private volatile int maintenanceParallelism = Integer.getInteger("scylla.jmx.fanout.parallelism", 8);
 
+    public StorageService(APIClient client) {
+        super("org.apache.cassandra.db:type=StorageService", client, new StorageMetrics(), new NotificationMetrics());
+        snapshots = new SnapshotCatalog(client);
+        jobs = new JobManager(this::jobFinished);
+        jobs.setThreads(maintenanceParallelism);
     }
 
     public void log(String str) {
         logger.finest(str);
     }
 
-    private static String normalizeInetAddressString(String s) {
-        try {
-            return InetAddress.getByName(s).getHostAddress();
-        } catch (UnknownHostException e) {
-            return s;
-        }
+    private TopologyCache topology() {
+        return TopologyCache.getInstance(client);
     }
 
-    private List<String> normalizeInetAddressStringList(List<String> list) {
-        return list.stream().map(StorageService::normalizeInetAddressString).collect(Collectors.toList());
+    private SchemaCatalog.Schema schema() {
+        return SchemaCatalog.getInstance(client).getSchema();
     }
 
-    private Map<List<String>, List<String>> normalizeListToInetAddressStringList(
-            Map<List<String>, List<String>> map) {
-        return map.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey,
-                        e -> normalizeInetAddressStringList(e.getValue())));
+    private static String normalizeInetAddressString(String s) {
+        return InetAddressUtils.normalize(s);
     }
 
-    private Map<String, String> normalizeStringToInetAddressStringMap(
-            Map<String, String> map) {
-        return map.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey,
-                        e -> normalizeInetAddressString(e.getValue())));
+    private List<String> normalizeInetAddressStringList(List<String> list) {
+        return list.stream().map(StorageService::normalizeInetAddressString).collect(Collectors.toList());
     }
 
     private <V> Map<String, V> normalizeInetAddressStringMap(
@@ -229,7 +237,7 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public List<String> getJoiningNodes() {
         log(" getJoiningNodes()");
-        return normalizeInetAddressStringList(client.getListStrValue("/storage_service/nodes/joining"));
+        return topology().getJoiningNodes();
     }
 
     /**
@@ -240,7 +248,7 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public List<String> getLeavingNodes() {
         log(" getLeavingNodes()");
-        return normalizeInetAddressStringList(client.getListStrValue("/storage_service/nodes/leaving"));
+        return topology().getLeavingNodes();
     }
 
     /**
@@ -251,7 +259,7 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public List<String> getMovingNodes() {
         log(" getMovingNodes()");
-        return normalizeInetAddressStringList(client.getListStrValue("/storage_service/nodes/moving"));
+        return topology().getMovingNodes();
     }
 
     /**
@@ -348,7 +356,7 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public Map<List<String>, List<String>> getRangeToEndpointMap(String keyspace) {
         log(" getRangeToEndpointMap(String keyspace)");
-        return normalizeListToInetAddressStringList(client.getMapListStrValue("/storage_service/range_to_endpoint_map/" + keyspace));
+        return topology().getRangeToEndpointMap(keyspace);
     }
 
     /**
@@ -360,9 +368,7 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public Map<List<String>, List<String>> getRangeToRpcaddressMap(String keyspace) {
         log(" getRangeToRpcaddressMap(String keyspace)");
-        MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
-        queryParams.add("rpc", "true");
-        return normalizeListToInetAddressStringList(client.getMapListStrValue("/storage_service/range/" + keyspace, queryParams));
+        return topology().getRangeToRpcaddressMap(keyspace);
     }
 
     /**
@@ -378,54 +384,7 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public List<String> describeRingJMX(String keyspace) throws IOException {
         log(" describeRingJMX(String keyspace) throws IOException");
-        JsonArray arr = client.getJsonArray("/storage_service/describe_ring/" + keyspace);
-        List<String> res = new ArrayList<String>();
-
-        for (int i = 0; i < arr.size(); i++) {
-            JsonObject obj = arr.getJsonObject(i);
-            StringBuilder sb = new StringBuilder();
-            sb.append("TokenRange(");
-            sb.append("start_token:");
-            sb.append(obj.getString("start_token"));
-            sb.append(", end_token:");
-            sb.append(obj.getString("end_token"));
-            sb.append(", endpoints:[");
-            JsonArray endpoints = obj.getJsonArray("endpoints");
-            for (int j = 0; j < endpoints.size(); j++) {
-                if (j > 0) {
-                    sb.append(", ");
-                }
-                sb.append(normalizeInetAddressString(endpoints.getString(j)));
-            }
-            sb.append("], rpc_endpoints:[");
-            JsonArray rpc_endpoints = obj.getJsonArray("rpc_endpoints");
-            for (int j = 0; j < rpc_endpoints.size(); j++) {
-                if (j > 0) {
-                    sb.append(", ");
-                }
-                sb.append(normalizeInetAddressString(rpc_endpoints.getString(j)));
-            }
-
-            sb.append("], endpoint_details:[");
-            JsonArray endpoint_details = obj.getJsonArray("endpoint_details");
-            for (int j = 0; j < endpoint_details.size(); j++) {
-                JsonObject detail = endpoint_details.getJsonObject(j);
-                if (j > 0) {
-                    sb.append(", ");
-                }
-                sb.append("EndpointDetails(");
-                sb.append("host:");
-                sb.append(detail.getString("host"));
-                sb.append(", datacenter:");
-                sb.append(detail.getString("datacenter"));
-                sb.append(", rack:");
-                sb.append(detail.getString("rack"));
-                sb.append(')');
-            }
-            sb.append("])");
-            res.add(sb.toString());
-        }
-        return res;
+        return topology().describeRing(keyspace);
     }
 
     /**
@@ -439,7 +398,7 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public Map<List<String>, List<String>> getPendingRangeToEndpointMap(String keyspace) {
         log(" getPendingRangeToEndpointMap(String keyspace)");
-        return normalizeListToInetAddressStringList(client.getMapListStrValue("/storage_service/pending_range/" + keyspace));
+        return topology().getPendingRangeToEndpointMap(keyspace);
     }
 
     /**
@@ -450,7 +409,7 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public Map<String, String> getTokenToEndpointMap() {
         log(" getTokenToEndpointMap()");
-        return normalizeStringToInetAddressStringMap(client.getMapStrValue("/storage_service/tokens_endpoint"));
+        return topology().getTokenToEndpointMap();
     }
 
     /** Retrieve this hosts unique ID */
@@ -472,13 +431,13 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public Map<String, String> getHostIdMap() {
         log(" getHostIdMap()");
-        return normalizeInetAddressStringMap(client.getMapStrValue("/storage_service/host_id"));
+        return topology().getHostIdMap();
     }
 
     /** Retrieve the mapping of endpoint to host ID */
     public Map<String, String> getHostIdToAddressMap() {
         log(" getHostIdToAddressMap()");
-        return normalizeStringToInetAddressStringMap(client.getReverseMapStrValue("/storage_service/host_id"));
+        return topology().getHostIdToEndpointMap();
     }
 
     /**
@@ -551,7 +510,57 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public List<InetAddress> getNaturalEndpoints(String keyspaceName, ByteBuffer key) {
         log(" getNaturalEndpoints(String keyspaceName, ByteBuffer key)");
-        return client.getListInetAddressValue("");
+        RangeReplicaMap ranges = getRangeReplicaMap(keyspaceName);
+        List<InetAddress> res = new ArrayList<>();
+        int range = ranges.rangeIndex(Murmur3Partitioner.getToken(key));
+        if (range >= 0) {
+            for (int i = 0; i < ranges.replicaCount(range); ++i) {
+                try {
+                    res.add(InetAddressUtils.getByName(ranges.replica(range, i)));
+                } catch (UnknownHostException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public Map<String, List<String>> getNaturalEndpointsForKeys(String keyspaceName, List<String> keys) {
+        log(" getNaturalEndpointsForKeys(String keyspaceName, List<String> keys)");
+        RangeReplicaMap ranges = getRangeReplicaMap(keyspaceName);
+        Map<String, List<String>> res = new HashMap<>(keys.size() * 4 / 3 + 1);
+        for (String key : keys) {
+            ByteBuffer buf;
+            try {
+                buf = ByteBuffer.wrap(BaseEncoding.base16().decode(key.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid hex key: " + key);
+            }
+            int range = ranges.rangeIndex(Murmur3Partitioner.getToken(buf));
+            res.put(key, range >= 0 ? ranges.replicas(range) : new ArrayList<>());
+        }
+        return res;
+    }
+
+    private RangeReplicaMap getRangeReplicaMap(String keyspaceName) {
+        RangeReplicaMap ranges = topology().getRangeReplicaMap(keyspaceName);
+        if (ranges == null) {
+            throw new UnsupportedOperationException("Computing endpoints of a key requires the Murmur3Partitioner");
+        }
+        return ranges;
+    }
+
+    private static Map<InetAddress, Float> toInetAddressMap(Map<String, Float> map) {
+        Map<InetAddress, Float> res = new HashMap<>(map.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Float> e : map.entrySet()) {
+            try {
+                res.put(InetAddressUtils.getByName(e.getKey()), e.getValue());
+            } catch (UnknownHostException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        return res;
     }
 
     @Override
@@ -589,7 +598,11 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
         if (options.containsKey("skipFlush")) {
             APIClient.set_query_param(queryParams, "sf", options.get("skipFlush"));
         }
-        client.post("/storage_service/snapshots", queryParams);
+        try {
+            client.post("/storage_service/snapshots", queryParams);
+        } finally {
+            snapshots.invalidate();
+        }
     }
 
     /**
@@ -619,7 +632,11 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
         queryParams.add("tag", tag);
         queryParams.add("kn", keyspaceName);
         queryParams.add("cf", columnFamilyName);
-        client.post("/storage_service/snapshots", queryParams);
+        try {
+            client.post("/storage_service/snapshots", queryParams);
+        } finally {
+            snapshots.invalidate();
+        }
     }
 
     /**
@@ -632,7 +649,11 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
         MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
         APIClient.set_query_param(queryParams, "tag", tag);
         APIClient.set_query_param(queryParams, "kn", APIClient.join(keyspaceNames));
-        client.delete("/storage_service/snapshots", queryParams);
+        try {
+            client.delete("/storage_service/snapshots", queryParams);
+        } finally {
+            snapshots.invalidate();
+        }
     }
 
     /**
@@ -643,28 +664,17 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public Map<String, TabularData> getSnapshotDetails() {
         log(" getSnapshotDetails()");
-        return client.getMapStringSnapshotTabularDataValue("/storage_service/snapshots", null);
+        return snapshots.getSnapshotDetails();
+    }
+
+    @Override
+    public TabularData getSnapshotDetails(String tag) {
+        log(" getSnapshotDetails(String tag)");
+        return snapshots.getSnapshotDetails(tag);
     }
 
     public Map<String, Map<String, Set<String>>> getSnapshotKeyspaceColumnFamily() {
-        JsonArray arr = client.getJsonArray("/storage_service/snapshots");
-        Map<String, Map<String, Set<String>>> res = new HashMap<String, Map<String, Set<String>>>();
-        for (int i = 0; i < arr.size(); i++) {
-            JsonObject obj = arr.getJsonObject(i);
-            Map<String, Set<String>> kscf = new HashMap<String, Set<String>>();
-            JsonArray snapshots = obj.getJsonArray("value");
-            for (int j = 0; j < snapshots.size(); j++) {
-                JsonObject s = snapshots.getJsonObject(j);
-                String ks = s.getString("ks");
-                String cf = s.getString("cf");
-                if (!kscf.containsKey(ks)) {
-                    kscf.put(ks, new HashSet<String>());
-                }
-                kscf.get(ks).add(cf);
-            }
-            res.put(obj.getString("key"), kscf);
-        }
-        return res;
+        return snapshots.getSnapshotKeyspaceColumnFamily();
     }
 
     /**
@@ -685,9 +695,17 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     public void forceKeyspaceCompaction(String keyspaceName, String... columnFamilies)
             throws IOException, ExecutionException, InterruptedException {
         log(" forceKeyspaceCompaction(String keyspaceName, String... columnFamilies) throws IOException, ExecutionException, InterruptedException");
+        JobManager.await(submitKeyspaceCompaction(true, keyspaceName, columnFamilies));
+    }
+
+    private JobManager.Job<Void> submitKeyspaceCompaction(boolean block, String keyspaceName,
+            String... columnFamilies) {
         MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
         APIClient.set_query_param(queryParams, "cf", APIClient.join(columnFamilies));
-        client.post("/storage_service/keyspace_compaction/" + keyspaceName, queryParams);
+        return submit(block, "forceKeyspaceCompaction", JobManager.arguments(keyspaceName, columnFamilies), () -> {
+            client.post("/storage_service/keyspace_compaction/" + keyspaceName, queryParams);
+            return null;
+        });
     }
 
     @Override
@@ -704,9 +722,15 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     public int forceKeyspaceCleanup(String keyspaceName, String... columnFamilies)
             throws IOException, ExecutionException, InterruptedException {
         log(" forceKeyspaceCleanup(String keyspaceName, String... columnFamilies) throws IOException, ExecutionException, InterruptedException");
+        return JobManager.await(submitKeyspaceCleanup(true, keyspaceName, columnFamilies));
+    }
+
+    private JobManager.Job<Integer> submitKeyspaceCleanup(boolean block, String keyspaceName,
+            String... columnFamilies) {
         MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
         APIClient.set_query_param(queryParams, "cf", APIClient.join(columnFamilies));
-        return client.postInt("/storage_service/keyspace_cleanup/" + keyspaceName, queryParams);
+        return submit(block, "forceKeyspaceCleanup", JobManager.arguments(keyspaceName, columnFamilies),
+                () -> client.postInt("/storage_service/keyspace_cleanup/" + keyspaceName, queryParams));
     }
 
     /**
@@ -727,11 +751,28 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     public int scrub(boolean disableSnapshot, boolean skipCorrupted, boolean checkData, String keyspaceName,
             String... columnFamilies) throws IOException, ExecutionException, InterruptedException {
         log(" scrub(boolean disableSnapshot, boolean skipCorrupted, bool checkData, String keyspaceName, String... columnFamilies) throws IOException, ExecutionException, InterruptedException");
+        return JobManager.await(submitScrub(true, disableSnapshot, skipCorrupted, "", keyspaceName, columnFamilies));
+    }
+
+    /**
+     * @param skipCorrupted
+     *            <code>null</code> for the scrub mode variants, which do not
+     *            send it
+     */
+    private JobManager.Job<Integer> submitScrub(boolean block, boolean disableSnapshot, Boolean skipCorrupted,
+            String scrubMode, String keyspaceName, String... columnFamilies) {
         MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
         APIClient.set_bool_query_param(queryParams, "disable_snapshot", disableSnapshot);
-        APIClient.set_bool_query_param(queryParams, "skip_corrupted", skipCorrupted);
+        if (skipCorrupted != null) {
+            APIClient.set_bool_query_param(queryParams, "skip_corrupted", skipCorrupted);
+        }
+        if (!"".equals(scrubMode)) {
+            APIClient.set_query_param(queryParams, "scrub_mode", scrubMode);
+        }
         APIClient.set_query_param(queryParams, "cf", APIClient.join(columnFamilies));
-        return client.getIntValue("/storage_service/keyspace_scrub/" + keyspaceName, queryParams);
+        return submit(block, "scrub",
+                JobManager.arguments(disableSnapshot, skipCorrupted, scrubMode, keyspaceName, columnFamilies),
+                () -> client.getIntValue("/storage_service/keyspace_scrub/" + keyspaceName, queryParams));
     }
 
     /**
@@ -742,10 +783,17 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     public int upgradeSSTables(String keyspaceName, boolean excludeCurrentVersion, String... columnFamilies)
             throws IOException, ExecutionException, InterruptedException {
         log(" upgradeSSTables(String keyspaceName, boolean excludeCurrentVersion, String... columnFamilies) throws IOException, ExecutionException, InterruptedException");
+        return JobManager.await(submitUpgradeSSTables(true, keyspaceName, excludeCurrentVersion, columnFamilies));
+    }
+
+    private JobManager.Job<Integer> submitUpgradeSSTables(boolean block, String keyspaceName,
+            boolean excludeCurrentVersion, String... columnFamilies) {
         MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
         APIClient.set_bool_query_param(queryParams, "exclude_current_version", excludeCurrentVersion);
         APIClient.set_query_param(queryParams, "cf", APIClient.join(columnFamilies));
-        return client.getIntValue("/storage_service/keyspace_upgrade_sstables/" + keyspaceName, queryParams);
+        return submit(block, "upgradeSSTables",
+                JobManager.arguments(keyspaceName, excludeCurrentVersion, columnFamilies),
+                () -> client.getIntValue("/storage_service/keyspace_upgrade_sstables/" + keyspaceName, queryParams));
     }
 
     /**
@@ -760,44 +808,16 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     public void forceKeyspaceFlush(String keyspaceName, String... columnFamilies)
             throws IOException, ExecutionException, InterruptedException {
         log(" forceKeyspaceFlush(String keyspaceName, String... columnFamilies) throws IOException, ExecutionException, InterruptedException");
+        JobManager.await(submitKeyspaceFlush(true, keyspaceName, columnFamilies));
+    }
+
+    private JobManager.Job<Void> submitKeyspaceFlush(boolean block, String keyspaceName, String... columnFamilies) {
         MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
         APIClient.set_query_param(queryParams, "cf", APIClient.join(columnFamilies));
-        client.post("/storage_service/keyspace_flush/" + keyspaceName, queryParams);
-    }
-
-    private class CheckRepair extends TimerTask {
-        @SuppressWarnings("unused")
-        private int id;
-        private String keyspace;
-        private String message;
-        private MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
-        private int cmd;
-        private final boolean legacy;
-
-        public CheckRepair(int id, String keyspace, boolean legacy) {
-            this.id = id;
-            this.keyspace = keyspace;
-            this.legacy = legacy;
-            APIClient.set_query_param(queryParams, "id", Integer.toString(id));
-            message = String.format("Repair session %d ", id);
-            // The returned id is the command number
-            this.cmd = id;
-        }
-
-        @Override
-        public void run() {
-            String status = client.getStringValue("/storage_service/repair_async/" + keyspace, queryParams);
-            if (!status.equals("RUNNING")) {
-                cancel();
-                if (status.equals("SUCCESSFUL")) {
-                    sendMessage(cmd, RepairStatus.SESSION_SUCCESS, message, legacy);
-                } else {
-                    sendMessage(cmd, RepairStatus.SESSION_FAILED, message + "failed", legacy);
-                }
-                sendMessage(cmd, RepairStatus.FINISHED, message + "finished", legacy);
-            }
-        }
-
+        return submit(block, "forceKeyspaceFlush", JobManager.arguments(keyspaceName, columnFamilies), () -> {
+            client.post("/storage_service/keyspace_flush/" + keyspaceName, queryParams);
+            return null;
+        });
     }
 
     /**
@@ -817,6 +837,155 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
         sendNotification(jmxNotification);
     }
 
+    private void jobFinished(JobManager.Job<?> job) {
+        Map<String, Object> userData = new HashMap<>();
+        userData.put("id", job.getId());
+        userData.put("operation", job.getOperation());
+        userData.put("state", job.getState().name());
+        userData.put("elapsed", job.getElapsed());
+        userData.put("result", job.getResult());
+        userData.put("error", job.getError());
+        sendNotification(JOB_FINISHED, "Job " + job.getId() + " (" + job.getOperation() + ") "
+                + job.getState().name().toLowerCase(), userData);
+    }
+
+    /**
+     * Queues the operation as a job, or runs it on the calling thread for the
+     * blocking variants.
+     */
+    private <T> JobManager.Job<T> submit(boolean block, String operation, String arguments, Callable<T> task) {
+        return block ? jobs.call(operation, arguments, task) : jobs.submit(operation, arguments, task);
+    }
+
+    @Override
+    public TabularData getJobs() {
+        log(" getJobs()");
+        return jobs.getJobs();
+    }
+
+    @Override
+    public CompositeData getJob(long id) {
+        log(" getJob(long id)");
+        return jobs.get(id).toCompositeData();
+    }
+
+    @Override
+    public long forceKeyspaceCompactionJob(String keyspaceName, String... tableNames) {
+        log(" forceKeyspaceCompactionJob(String keyspaceName, String... tableNames)");
+        return submitKeyspaceCompaction(false, keyspaceName, tableNames).getId();
+    }
+
+    @Override
+    public long forceKeyspaceCleanupJob(String keyspaceName, String... tables) {
+        log(" forceKeyspaceCleanupJob(String keyspaceName, String... tables)");
+        return submitKeyspaceCleanup(false, keyspaceName, tables).getId();
+    }
+
+    @Override
+    public long scrubJob(boolean disableSnapshot, String scrubMode, String keyspaceName, String... tableNames) {
+        log(" scrubJob(boolean disableSnapshot, String scrubMode, String keyspaceName, String... tableNames)");
+        return submitScrub(false, disableSnapshot, null, scrubMode, keyspaceName, tableNames).getId();
+    }
+
+    @Override
+    public long upgradeSSTablesJob(String keyspaceName, boolean excludeCurrentVersion, String... tableNames) {
+        log(" upgradeSSTablesJob(String keyspaceName, boolean excludeCurrentVersion, String... tableNames)");
+        return submitUpgradeSSTables(false, keyspaceName, excludeCurrentVersion, tableNames).getId();
+    }
+
+    @Override
+    public long forceKeyspaceFlushJob(String keyspaceName, String... tableNames) {
+        log(" forceKeyspaceFlushJob(String keyspaceName, String... tableNames)");
+        return submitKeyspaceFlush(false, keyspaceName, tableNames).getId();
+    }
+
+    @Override
+    public long rebuildJob(String sourceDc) {
+        log(" rebuildJob(String sourceDc)");
+        return submitRebuild(false, sourceDc).getId();
+    }
+
+    @Override
+    public long bulkLoadJob(String directory) {
+        log(" bulkLoadJob(String directory)");
+        return submitBulkLoad(false, directory).getId();
+    }
+
+    @Override
+    public long loadNewSSTablesJob(String ksName, String cfName, boolean isLoadAndStream,
+            boolean isPrimaryReplicaOnly) {
+        log(" loadNewSSTablesJob(String ksName, String cfName, boolean isLoadAndStream, boolean isPrimaryReplicaOnly)");
+        return submitLoadNewSSTables(false, ksName, cfName, isLoadAndStream, isPrimaryReplicaOnly).getId();
+    }
+
+    @Override
+    public long drainJob() {
+        log(" drainJob()");
+        return submitDrain(false).getId();
+    }
+
+    @Override
+    public int getMaintenanceParallelism() {
+        return maintenanceParallelism;
+    }
+
+    @Override
+    public void setMaintenanceParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        maintenanceParallelism = parallelism;
+        jobs.setThreads(parallelism);
+    }
+
+    private static String[] tables(String table) {
+        return table == null ? new String[0] : new String[] { table };
+    }
+
+    @Override
+    public TabularData forceFlushTargets(List<String> targets) throws InterruptedException {
+        log(" forceFlushTargets(List<String> targets)");
+        return TargetFanout.apply(schema(), targets, maintenanceParallelism,
+                (ks, cf) -> submitKeyspaceFlush(false, ks, tables(cf)));
+    }
+
+    @Override
+    public TabularData forceCompactionTargets(List<String> targets) throws InterruptedException {
+        log(" forceCompactionTargets(List<String> targets)");
+        return TargetFanout.apply(schema(), targets, maintenanceParallelism,
+                (ks, cf) -> submitKeyspaceCompaction(false, ks, tables(cf)));
+    }
+
+    @Override
+    public TabularData forceCleanupTargets(List<String> targets) throws InterruptedException {
+        log(" forceCleanupTargets(List<String> targets)");
+        return TargetFanout.apply(schema(), targets, maintenanceParallelism,
+                (ks, cf) -> submitKeyspaceCleanup(false, ks, tables(cf)));
+    }
+
+    @Override
+    public TabularData takeSnapshotTargets(String tag, List<String> targets)
+            throws IOException, InterruptedException {
+        log(" takeSnapshotTargets(String tag, List<String> targets)");
+        if (tag == null || tag.equals("")) {
+            throw new IOException("You must supply a snapshot name.");
+        }
+        try {
+            return TargetFanout.apply(schema(), targets, maintenanceParallelism, (ks, cf) -> {
+                MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
+                APIClient.set_query_param(queryParams, "cf", cf);
+                queryParams.add("tag", tag);
+                queryParams.add("kn", ks);
+                return submit(false, "takeSnapshot", JobManager.arguments(tag, ks, cf), () -> {
+                    client.post("/storage_service/snapshots", queryParams);
+                    return null;
+                });
+            });
+        } finally {
+            snapshots.invalidate();
+        }
+    }
+
     public String getRepairMessage(final int cmd, final String keyspace, final int ranges_size,
             final RepairParallelism parallelismDegree, final boolean fullRepair) {
         return String.format(
@@ -833,8 +1002,15 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
 
         sendMessage(cmd, RepairStatus.STARTED, message, legacy);
 
-        TimerTask taskToExecute = new CheckRepair(cmd, keyspace, legacy);
-        timer.schedule(taskToExecute, 100, 1000);
+        String session = String.format("Repair session %d ", cmd);
+        RepairTracker.getInstance(client).track(cmd, keyspace).thenAccept(success -> {
+            if (success) {
+                sendMessage(cmd, RepairStatus.SESSION_SUCCESS, session, legacy);
+            } else {
+                sendMessage(cmd, RepairStatus.SESSION_FAILED, session + "failed", legacy);
+            }
+            sendMessage(cmd, RepairStatus.FINISHED, session + "finished", legacy);
+        });
         return cmd;
     }
 
@@ -989,6 +1165,12 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
                 columnFamilies);
     }
 
+    @Override
+    public TabularData getActiveRepairs() {
+        log(" getActiveRepairs()");
+        return RepairTracker.getInstance(client).getActiveRepairs();
+    }
+
     @Override
     public void forceTerminateAllRepairSessions() {
         log(" forceTerminateAllRepairSessions()");
@@ -1127,7 +1309,16 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public void drain() throws IOException, InterruptedException, ExecutionException {
         log(" drain() throws IOException, InterruptedException, ExecutionException");
-        client.post("/storage_service/drain");
+        JobManager.await(submitDrain(true));
+    }
+
+    private JobManager.Job<Void> submitDrain(boolean block) {
+        // never queued behind maintenance jobs
+        Callable<Void> task = () -> {
+            client.post("/storage_service/drain");
+            return null;
+        };
+        return block ? jobs.call("drain", "", task) : jobs.submitUnqueued("drain", "", task);
     }
 
     /**
@@ -1157,6 +1348,10 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public Map<InetAddress, Float> getOwnership() {
         log(" getOwnership()");
+        TokenRing ring = topology().getTokenRing();
+        if (ring != null) {
+            return toInetAddressMap(ring.ownership());
+        }
         return client.getMapInetAddressFloatValue("/storage_service/ownership/");
     }
 
@@ -1171,6 +1366,12 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     public Map<InetAddress, Float> effectiveOwnership(String keyspace) throws IllegalStateException {
         log(" effectiveOwnership(String keyspace) throws IllegalStateException");
         try {
+            // Without a keyspace the server checks all of them have the same
+            // replication, which we cannot do here.
+            RangeReplicaMap ranges = keyspace == null ? null : topology().getRangeReplicaMap(keyspace);
+            if (ranges != null) {
+                return toInetAddressMap(ranges.effectiveOwnership());
+            }
             return client.getMapInetAddressFloatValue("/storage_service/ownership/" + keyspace);
         } catch (Exception e) {
             throw new IllegalStateException(
@@ -1181,32 +1382,17 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public List<String> getKeyspaces() {
         log(" getKeyspaces()");
-        return client.getListStrValue("/storage_service/keyspaces");
+        return schema().getKeyspaces();
     }
 
     public Map<String, Set<String>> getColumnFamilyPerKeyspace() {
-        Map<String, Set<String>> res = new HashMap<String, Set<String>>();
-
-        JsonArray mbeans = client.getJsonArray("/column_family/");
-
-        for (int i = 0; i < mbeans.size(); i++) {
-            JsonObject mbean = mbeans.getJsonObject(i);
-            String ks = mbean.getString("ks");
-            String cf = mbean.getString("cf");
-            if (!res.containsKey(ks)) {
-                res.put(ks, new HashSet<String>());
-            }
-            res.get(ks).add(cf);
-        }
-        return res;
+        return schema().getTablesPerKeyspace();
     }
 
     @Override
     public List<String> getNonSystemKeyspaces() {
         log(" getNonSystemKeyspaces()");
-        MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
-        queryParams.add("type", "user");
-        return client.getListStrValue("/storage_service/keyspaces", queryParams);
+        return schema().getNonSystemKeyspaces();
     }
 
     @Override
@@ -1420,20 +1606,32 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
         if (specificSources != null) {
             throw new UnsupportedOperationException("Rebuild: 'specific sources' not yet supported");
         }
+        JobManager.awaitUninterruptibly(submitRebuild(true, sourceDc));
+    }
+
+    private JobManager.Job<Void> submitRebuild(boolean block, String sourceDc) {
+        MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
         if (sourceDc != null) {
-            MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
             APIClient.set_query_param(queryParams, "source_dc", sourceDc);
-            client.post("/storage_service/rebuild", queryParams);
-        } else {
-            client.post("/storage_service/rebuild");
         }
+        return submit(block, "rebuild", JobManager.arguments(sourceDc), () -> {
+            client.post("/storage_service/rebuild", queryParams);
+            return null;
+        });
     }
 
     /** Starts a bulk load and blocks until it completes. */
     @Override
     public void bulkLoad(String directory) {
         log(" bulkLoad(String directory)");
-        client.post("/storage_service/bulk_load/" + directory);
+        JobManager.awaitUninterruptibly(submitBulkLoad(true, directory));
+    }
+
+    private JobManager.Job<Void> submitBulkLoad(boolean block, String directory) {
+        return submit(block, "bulkLoad", JobManager.arguments(directory), () -> {
+            client.post("/storage_service/bulk_load/" + directory);
+            return null;
+        });
     }
 
     /**
@@ -1467,6 +1665,12 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public void loadNewSSTables(String ksName, String cfName, boolean isLoadAndStream, boolean isPrimaryReplicaOnly) {
         log(" loadNewSSTables(String ksName, String cfName, boolean isLoadAndStream, boolean isPrimaryReplicaOnly)");
+        JobManager.awaitUninterruptibly(
+                submitLoadNewSSTables(true, ksName, cfName, isLoadAndStream, isPrimaryReplicaOnly));
+    }
+
+    private JobManager.Job<Void> submitLoadNewSSTables(boolean block, String ksName, String cfName,
+            boolean isLoadAndStream, boolean isPrimaryReplicaOnly) {
         MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
         queryParams.add("cf", cfName);
         if (isLoadAndStream) {
@@ -1475,7 +1679,11 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
         if (isPrimaryReplicaOnly) {
             queryParams.add("primary_replica_only", "true");
         }
-        client.post("/storage_service/sstables/" + ksName, queryParams);
+        return submit(block, "loadNewSSTables",
+                JobManager.arguments(ksName, cfName, isLoadAndStream, isPrimaryReplicaOnly), () -> {
+                    client.post("/storage_service/sstables/" + ksName, queryParams);
+                    return null;
+                });
     }
 
     @Override
@@ -1643,7 +1851,9 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
         log(" takeMultipleColumnFamilySnapshot");
         Map<String, List<String>> keyspaceColumnfamily = new HashMap<String, List<String>>();
         Map<String, Set<String>> kss = getColumnFamilyPerKeyspace();
-        Map<String, Map<String, Set<String>>> snapshots = getSnapshotKeyspaceColumnFamily();
+        // the check for existing snapshots below must not use a stale listing
+        snapshots.invalidate();
+        Map<String, Map<String, Set<String>>> existing = getSnapshotKeyspaceColumnFamily();
         for (String columnFamily : columnFamilyList) {
             String splittedString[] = columnFamily.split("\\.");
             if (splittedString.length == 2) {
@@ -1670,8 +1880,8 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
                 // check if snapshot exist for that specific
                 // columnfamily and not for whole keyspace
 
-                if (snapshots.containsKey(tag) && snapshots.get(tag).containsKey(keyspaceName)
-                        && snapshots.get(tag).get(keyspaceName).contains(columnFamilyName)) {
+                if (existing.containsKey(tag) && existing.get(tag).containsKey(keyspaceName)
+                        && existing.get(tag).get(keyspaceName).contains(columnFamilyName)) {
                     throw new IOException("Snapshot " + tag + " already exists.");
                 }
 
@@ -1740,12 +1950,12 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
 
     @Override
     public Map<String, String> getEndpointToHostId() {
-        return normalizeInetAddressStringMap(getHostIdMap());
+        return getHostIdMap();
     }
 
     @Override
     public Map<String, String> getHostIdToEndpoint() {
-        return normalizeStringToInetAddressStringMap(getHostIdToAddressMap());
+        return getHostIdToAddressMap();
     }
 
     @Override
@@ -1793,9 +2003,7 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     @Override
     public List<String> getNonLocalStrategyKeyspaces() {
         log(" getNonLocalStrategyKeyspaces");
-        MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
-        queryParams.add("type", "non_local_strategy");
-        return client.getListStrValue("/storage_service/keyspaces", queryParams);
+        return schema().getNonLocalStrategyKeyspaces();
     }
 
     @Override
@@ -1817,8 +2025,7 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
         return false;
     }
 
-    @Override
-    public List<CompositeData> getSSTableInfo(String keyspace, String table) {
+    private InputStream getSSTableInfoStream(String keyspace, String table) {
         if (keyspace == null && table != null) {
             throw new IllegalArgumentException("Missing keyspace name");
         }
@@ -1831,10 +2038,32 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
         if (table != null) {
             queryParams.add("cf", table);
         }
+        try {
+            return client.get("/storage_service/sstable_info", queryParams).get(InputStream.class);
+        } catch (ProcessingException e) {
+            throw new IllegalStateException("Unable to connect to Scylla API server: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<CompositeData> getSSTableInfo(String keyspace, String table) {
+        return getSSTableInfo(keyspace, table, -1, -1, 0, 0, 0);
+    }
+
+    @Override
+    public List<CompositeData> getSSTableInfo(String keyspace, String table, long minGeneration, long maxGeneration,
+            long minSize, int offset, int limit) {
+        log(" getSSTableInfo(String keyspace, String table, long minGeneration, long maxGeneration, long minSize, int offset, int limit)");
+        return SSTableInfoDecoder.decode(getSSTableInfoStream(keyspace, table),
+                new SSTableInfoDecoder.Filter(minGeneration, maxGeneration, minSize), offset, limit);
+    }
 
-        return client.get("/storage_service/sstable_info", queryParams)
-                .get(new GenericType<List<PerTableSSTableInfo>>() {
-                }).stream().map((i) -> i.toCompositeData()).collect(Collectors.toList());
+    @Override
+    public TabularData getSSTableSummary(String keyspace, String table, long minGeneration, long maxGeneration,
+            long minSize) {
+        log(" getSSTableSummary(String keyspace, String table, long minGeneration, long maxGeneration, long minSize)");
+        return SSTableInfoDecoder.summarize(getSSTableInfoStream(keyspace, table),
+                new SSTableInfoDecoder.Filter(minGeneration, maxGeneration, minSize));
     }
     
     @Override
@@ -1846,24 +2075,14 @@ public class StorageService extends MetricsMBean implements StorageServiceMBean,
     public int scrub(boolean disableSnapshot, boolean skipCorrupted, boolean checkData, boolean reinsertOverflowedTTL,
             int jobs, String keyspaceName, String... columnFamilies)
             throws IOException, ExecutionException, InterruptedException {
-        MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
-        APIClient.set_bool_query_param(queryParams, "disable_snapshot", disableSnapshot);
-        APIClient.set_bool_query_param(queryParams, "skip_corrupted", skipCorrupted);
-        APIClient.set_query_param(queryParams, "cf", APIClient.join(columnFamilies));
-        return client.getIntValue("/storage_service/keyspace_scrub/" + keyspaceName, queryParams);
+        return JobManager.await(submitScrub(true, disableSnapshot, skipCorrupted, "", keyspaceName, columnFamilies));
     }
 
     @Override
     public int scrub(boolean disableSnapshot, String scrubMode, boolean checkData, boolean reinsertOverflowedTTL,
             int jobs, String keyspaceName, String... columnFamilies)
             throws IOException, ExecutionException, InterruptedException {
-        MultivaluedMap<String, String> queryParams = new MultivaluedHashMap<String, String>();
-        APIClient.set_bool_query_param(queryParams, "disable_snapshot", disableSnapshot);
-        if (!"".equals(scrubMode)) {
-            APIClient.set_query_param(queryParams, "scrub_mode", scrubMode);
-        }
-        APIClient.set_query_param(queryParams, "cf", APIClient.join(columnFamilies));
-        return client.getIntValue("/storage_service/keyspace_scrub/" + keyspaceName, queryParams);
+        return JobManager.await(submitScrub(true, disableSnapshot, null, scrubMode, keyspaceName, columnFamilies));
     }
 
     @Override
@@ -215,6 +215,17 @@ public interface StorageServiceMBean extends NotificationEmitter {
 
     public List<InetAddress> getNaturalEndpoints(String keyspaceName, ByteBuffer key);
 
+    /**
+     * Bulk version of {@link #getNaturalEndpoints(String, ByteBuffer)}.
+     *
+     * @param keyspaceName
+     *            keyspace name
+     * @param keys
+     *            serialized partition keys, hex encoded
+     * @return a map of each key to the endpoints responsible for it
+     */
+    public Map<String, List<String>> getNaturalEndpointsForKeys(String keyspaceName, List<String> keys);
+
     public void checkAndRepairCdcStreams() throws IOException;
     /**
      * Takes the snapshot for the given keyspaces. A snapshot name must be
@@ -296,6 +307,14 @@ public interface StorageServiceMBean extends NotificationEmitter {
      */
     public Map<String, TabularData> getSnapshotDetails();
 
+    /**
+     * Get the details of a single snapshot
+     *
+     * @return the details of the snapshot in Tabular form, or null if there is
+     *         no snapshot with that name.
+     */
+    public TabularData getSnapshotDetails(String tag);
+
     /**
      * Get the true size taken by all snapshots across all keyspaces.
      *
@@ -498,6 +517,83 @@ public interface StorageServiceMBean extends NotificationEmitter {
 
     public void forceTerminateAllRepairSessions();
 
+    /**
+     * Maximum number of jobs a *Targets operation has queued or running at a
+     * time. All jobs share one pool, sized to this parallelism but never
+     * below scylla.jmx.jobs.threads threads.
+     */
+    public int getMaintenanceParallelism();
+
+    public void setMaintenanceParallelism(int parallelism);
+
+    /**
+     * Flushes every keyspace or table matching the given "keyspace" or
+     * "keyspace.table" patterns ('*' and '?' wildcards allowed), in parallel.
+     *
+     * @return the outcome of each target, including the errors
+     */
+    public TabularData forceFlushTargets(List<String> targets) throws InterruptedException;
+
+    /** Major compaction of the matching targets, as {@link #forceFlushTargets(List)} */
+    public TabularData forceCompactionTargets(List<String> targets) throws InterruptedException;
+
+    /** Cleanup of the matching targets, as {@link #forceFlushTargets(List)} */
+    public TabularData forceCleanupTargets(List<String> targets) throws InterruptedException;
+
+    /** Snapshot of the matching targets, as {@link #forceFlushTargets(List)} */
+    public TabularData takeSnapshotTargets(String tag, List<String> targets) throws IOException, InterruptedException;
+
+    /** Type of the notification sent when a job finishes */
+    public static final String JOB_FINISHED = "job.finished";
+
+    /**
+     * The jobs started by the *Job operations, or by their blocking
+     * counterparts, that are pending, running or finished recently.
+     */
+    public TabularData getJobs();
+
+    /** State, elapsed time and result of a job */
+    public CompositeData getJob(long id);
+
+    /**
+     * Same as {@link #forceKeyspaceCompaction(String, String...)}, but returns
+     * a job id immediately. The id of an identical job still pending is
+     * returned instead of starting a new one.
+     */
+    public long forceKeyspaceCompactionJob(String keyspaceName, String... tableNames);
+
+    /** Job version of {@link #forceKeyspaceCleanup(String, String...)} */
+    public long forceKeyspaceCleanupJob(String keyspaceName, String... tables);
+
+    /** Job version of scrub */
+    public long scrubJob(boolean disableSnapshot, String scrubMode, String keyspaceName, String... tableNames);
+
+    /** Job version of {@link #upgradeSSTables(String, boolean, String...)} */
+    public long upgradeSSTablesJob(String keyspaceName, boolean excludeCurrentVersion, String... tableNames);
+
+    /** Job version of {@link #forceKeyspaceFlush(String, String...)} */
+    public long forceKeyspaceFlushJob(String keyspaceName, String... tableNames);
+
+    /** Job version of {@link #rebuild(String)} */
+    public long rebuildJob(String sourceDc);
+
+    /** Job version of {@link #bulkLoad(String)} */
+    public long bulkLoadJob(String directory);
+
+    /** Job version of {@link #loadNewSSTables(String, String, boolean, boolean)} */
+    public long loadNewSSTablesJob(String ksName, String cfName, boolean isLoadAndStream, boolean isPrimaryReplicaOnly);
+
+    /**
+     * Job version of {@link #drain()}. It starts right away rather than
+     * waiting behind queued jobs.
+     */
+    public long drainJob();
+
+    /**
+     * The repairs started through this MBean that have not finished yet.
+     */
+    public TabularData getActiveRepairs();
+
     /**
      * transfer this node's data to other machines and remove it from service.
      */
@@ -908,6 +1004,26 @@ public interface StorageServiceMBean extends NotificationEmitter {
     public List<CompositeData> getSSTableInfo(String keyspace, String table);
 
     public List<CompositeData> getSSTableInfo();
+
+    /**
+     * The sstables of the given keyspace and table (all if null) with a
+     * generation in [minGeneration, maxGeneration] and a size of at least
+     * minSize. Negative bounds are ignored.
+     *
+     * @param offset
+     *            number of matching sstables to skip
+     * @param limit
+     *            maximum number of sstables to return, all if not positive
+     */
+    public List<CompositeData> getSSTableInfo(String keyspace, String table, long minGeneration, long maxGeneration,
+            long minSize, int offset, int limit);
+
+    /**
+     * Number and total sizes of the sstables of each table, selected as in
+     * {@link #getSSTableInfo(String, String, long, long, long, int, int)}.
+     */
+    public TabularData getSSTableSummary(String keyspace, String table, long minGeneration, long maxGeneration,
+            long minSize);
     
     /** retun the system uptime */
     public long getUptime();
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.service;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.apache.cassandra.db.SchemaCatalog;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Runs a maintenance operation on many keyspaces or tables at once.
+ * <p>
+ * Targets are given as "keyspace" or "keyspace.table" patterns, where '*'
+ * and '?' match any run of characters and any single character. A pattern
+ * without a table targets the whole keyspace with one call, and tables of a
+ * keyspace targeted as a whole are left out.
+ * <p>
+ * Each target is run as a job of the {@link JobManager}, so the calls share
+ * its bounded pool with all other jobs, and a target identical to a job
+ * still pending waits for that job instead of being queued again.
+ * At most <code>parallelism</code> jobs of a call are queued or running at a
+ * time. The outcome of each target is reported separately.
+ */
+class TargetFanout {
+
+    private static final String[] ITEM_NAMES = new String[] { "target", "keyspace", "table", "success", "result",
+            "error", "elapsed" };
+
+    private static final String[] ITEM_DESCS = new String[] { "keyspace or keyspace.table", "keyspace name",
+            "table name, empty for the whole keyspace", "whether the operation succeeded",
+            "result of the operation, if any", "error message, if failed", "duration of the operation (ms)" };
+
+    private static final String TYPE_NAME = "TargetResults";
+
+    private static final String ROW_DESC = "TargetResults";
+
+    private static final OpenType<?>[] ITEM_TYPES;
+
+    private static final CompositeType COMPOSITE_TYPE;
+
+    private static final TabularType TABULAR_TYPE;
+
+    static {
+        try {
+            ITEM_TYPES = new OpenType[] { SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.BOOLEAN,
+                    SimpleType.STRING, SimpleType.STRING, SimpleType.LONG };
+
+            COMPOSITE_TYPE = new CompositeType(TYPE_NAME, ROW_DESC, ITEM_NAMES, ITEM_DESCS, ITEM_TYPES);
+
+            TABULAR_TYPE = new TabularType(TYPE_NAME, ROW_DESC, COMPOSITE_TYPE, new String[] { "target" });
+        } catch (OpenDataException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Submits the operation on a keyspace, or a single table of it, as a job.
+     */
+    interface Operation {
+        /**
+         * @param table
+         *            the table, or <code>null</code> for the whole keyspace
+         * @throws IllegalStateException
+         *             if too many jobs are queued
+         */
+        JobManager.Job<?> submit(String keyspace, String table);
+    }
+
+    private static final class Target {
+        private final String name;
+        private final String keyspace;
+        private final String table;
+        private boolean success;
+        private String result;
+        private String error;
+        private long elapsed;
+
+        Target(String name, String keyspace, String table) {
+            this.name = name;
+            this.keyspace = keyspace;
+            this.table = table;
+        }
+    }
+
+    private TargetFanout() {
+    }
+
+    private static Pattern glob(String s) {
+        StringBuilder sb = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    sb.append(Pattern.quote(s.substring(start, i)));
+                }
+                sb.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < s.length()) {
+            sb.append(Pattern.quote(s.substring(start)));
+        }
+        return Pattern.compile(sb.toString());
+    }
+
+    /**
+     * Expands the patterns to the matching keyspaces and tables. A pattern
+     * matching nothing is reported as a failed target.
+     */
+    private static Map<String, Target> resolve(SchemaCatalog.Schema schema, List<String> patterns) {
+        Map<String, Target> targets = new TreeMap<>();
+        for (String pattern : patterns) {
+            int dot = pattern.indexOf('.');
+            Pattern ks = glob(dot < 0 ? pattern : pattern.substring(0, dot));
+            Pattern cf = dot < 0 ? null : glob(pattern.substring(dot + 1));
+            boolean matched = false;
+            for (String keyspace : schema.getKeyspaces()) {
+                if (!ks.matcher(keyspace).matches()) {
+                    continue;
+                }
+                if (cf == null) {
+                    targets.putIfAbsent(keyspace, new Target(keyspace, keyspace, null));
+                    matched = true;
+                    continue;
+                }
+                Set<String> tables = schema.getTablesPerKeyspace().getOrDefault(keyspace, Collections.emptySet());
+                for (String table : tables) {
+                    if (cf.matcher(table).matches()) {
+                        String name = keyspace + "." + table;
+                        targets.putIfAbsent(name, new Target(name, keyspace, table));
+                        matched = true;
+                    }
+                }
+            }
+            if (!matched && !targets.containsKey(pattern)) {
+                Target t = new Target(pattern, "", "");
+                t.error = "No keyspace or table matches " + pattern;
+                targets.put(pattern, t);
+            }
+        }
+        // tables covered by a keyspace target
+        targets.values().removeIf(t -> t.table != null && t.error == null && targets.containsKey(t.keyspace)
+                && targets.get(t.keyspace).table == null);
+        return targets;
+    }
+
+    private static void finished(Target target, JobManager.Job<?> job) {
+        target.success = job.getState() == JobManager.State.SUCCESSFUL;
+        target.result = job.getResult();
+        target.error = job.getError();
+        target.elapsed = job.getElapsed();
+    }
+
+    private static String message(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    /**
+     * Applies the operation to every target matched by the patterns and
+     * waits for all of them.
+     */
+    static TabularData apply(SchemaCatalog.Schema schema, List<String> patterns, int parallelism, Operation op)
+            throws InterruptedException {
+        Map<String, Target> targets = resolve(schema, patterns);
+        Deque<Target> pending = new ArrayDeque<>();
+        for (Target t : targets.values()) {
+            if (t.error == null) {
+                pending.add(t);
+            }
+        }
+        Map<Target, JobManager.Job<?>> running = new LinkedHashMap<>();
+        while (!pending.isEmpty() || !running.isEmpty()) {
+            while (!pending.isEmpty() && running.size() < parallelism) {
+                Target t = pending.peek();
+                try {
+                    running.put(t, op.submit(t.keyspace, t.table));
+                } catch (IllegalStateException e) {
+                    if (!running.isEmpty()) {
+                        // the job queue is full, retry once one of ours is
+                        // done
+                        break;
+                    }
+                    t.error = message(e);
+                } catch (RuntimeException e) {
+                    t.error = message(e);
+                }
+                pending.poll();
+            }
+            if (running.isEmpty()) {
+                continue;
+            }
+            try {
+                CompletableFuture.anyOf(running.values().stream().map(JobManager.Job::getFuture)
+                        .toArray(CompletableFuture[]::new)).get();
+            } catch (ExecutionException e) {
+                // reported by finished()
+            }
+            for (Iterator<Map.Entry<Target, JobManager.Job<?>>> i = running.entrySet().iterator(); i.hasNext();) {
+                Map.Entry<Target, JobManager.Job<?>> e = i.next();
+                if (e.getValue().getFuture().isDone()) {
+                    finished(e.getKey(), e.getValue());
+                    i.remove();
+                }
+            }
+        }
+
+        TabularDataSupport res = new TabularDataSupport(TABULAR_TYPE);
+        for (Target t : targets.values()) {
+            try {
+                res.put(new CompositeDataSupport(COMPOSITE_TYPE, ITEM_NAMES, new Object[] { t.name, t.keyspace,
+                        t.table == null ? "" : t.table, t.success, t.result, t.error, t.elapsed }));
+            } catch (OpenDataException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return res;
+    }
+}
@@ -34,6 +34,7 @@ import javax.json.JsonArray;
 import javax.json.JsonObject;
 
 import com.google.common.base.Objects;
+import com.scylladb.jmx.utils.InetAddressUtils;
 
 /**
  * ProgressInfo contains file transfer progress.
@@ -78,7 +79,7 @@ public class ProgressInfo implements Serializable {
 
     static public ProgressInfo fromJsonObject(JsonObject obj) {
         try {
-            return new ProgressInfo(InetAddress.getByName(obj.getString("peer")), obj.getInt("session_index"),
+            return new ProgressInfo(InetAddressUtils.getByName(obj.getString("peer")), obj.getInt("session_index"),
                     obj.getString("file_name"), Direction.valueOf(obj.getString("direction")),
                     obj.getJsonNumber("current_bytes").longValue(), obj.getJsonNumber("total_bytes").longValue());
         } catch (UnknownHostException e) {
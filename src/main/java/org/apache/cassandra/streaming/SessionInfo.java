@@ -36,6 +36,7 @@ import javax.json.JsonArray;
 import javax.json.JsonObject;
 
 import com.google.common.collect.Iterables;
+import com.scylladb.jmx.utils.InetAddressUtils;
 
 /**
  * Stream session info.
@@ -57,7 +58,7 @@ public final class SessionInfo implements Serializable {
 
     static InetAddress address(String val) {
         try {
-            return InetAddress.getByName(val);
+            return InetAddressUtils.getByName(val);
         } catch (UnknownHostException e) {
         }
         return null;
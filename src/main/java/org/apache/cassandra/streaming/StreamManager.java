@@ -24,25 +24,31 @@
 
 package org.apache.cassandra.streaming;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
-import javax.json.JsonArray;
-import javax.json.JsonObject;
 import javax.management.ListenerNotFoundException;
 import javax.management.MBeanNotificationInfo;
+import javax.management.Notification;
 import javax.management.NotificationBroadcasterSupport;
 import javax.management.NotificationFilter;
 import javax.management.NotificationListener;
 import javax.management.openmbean.CompositeData;
 
+import org.apache.cassandra.streaming.management.ProgressInfoCompositeData;
+import org.apache.cassandra.streaming.management.SessionCompleteEventCompositeData;
+import org.apache.cassandra.streaming.management.SessionInfoCompositeData;
 import org.apache.cassandra.streaming.management.StreamStateCompositeData;
 
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Sets;
 import com.scylladb.jmx.api.APIClient;
 import com.scylladb.jmx.metrics.APIMBean;
+import com.scylladb.jmx.utils.BoundedNotificationBroadcaster;
 
 /**
  * StreamManager manages currently running {@link StreamResultFuture}s and
@@ -54,44 +60,122 @@ import com.scylladb.jmx.metrics.APIMBean;
 public class StreamManager extends APIMBean implements StreamManagerMBean {
     private static final Logger logger = Logger.getLogger(StreamManager.class.getName());
 
-    private final NotificationBroadcasterSupport notifier = new NotificationBroadcasterSupport();
+    /** Name of the notification broadcaster, in metrics and configuration */
+    public static final String NOTIFICATIONS = "StreamManager";
+
+    // Same notification types as Cassandra's StreamEvent notifications
+    public static final String SESSION_PREPARED = "org.apache.cassandra.streaming.StreamEvent.SessionPreparedEvent";
+    public static final String SESSION_COMPLETE = "org.apache.cassandra.streaming.StreamEvent.SessionCompleteEvent";
+    public static final String PROGRESS = "org.apache.cassandra.streaming.StreamEvent.ProgressEvent";
+    public static final String STREAM_SUCCESS = "org.apache.cassandra.streaming.StreamEvent.success";
+    public static final String STREAM_FAILURE = "org.apache.cassandra.streaming.StreamEvent.failure";
+
+    private final NotificationBroadcasterSupport notifier = new BoundedNotificationBroadcaster(NOTIFICATIONS,
+            StreamManager::coalescingKey,
+            new MBeanNotificationInfo(
+                    new String[] { SESSION_PREPARED, SESSION_COMPLETE, PROGRESS, STREAM_SUCCESS, STREAM_FAILURE },
+                    Notification.class.getName(), "Stream events"));
+    private final AtomicLong notificationSerialNumber = new AtomicLong();
+    // one entry per registration, to know when to stop monitoring
+    private final List<NotificationListener> listeners = new ArrayList<>();
+    private final StreamMonitor.Listener monitorListener = new StreamMonitor.Listener() {
+        @Override
+        public void sessionPrepared(UUID planId, SessionInfo session) {
+            sendNotification(SESSION_PREPARED, SessionInfoCompositeData.toCompositeData(planId, session));
+        }
+
+        @Override
+        public void progress(UUID planId, ProgressInfo progress) {
+            sendNotification(PROGRESS, ProgressInfoCompositeData.toCompositeData(planId, progress));
+        }
+
+        @Override
+        public void sessionComplete(UUID planId, SessionInfo session, boolean success) {
+            sendNotification(SESSION_COMPLETE, SessionCompleteEventCompositeData.toCompositeData(planId,
+                    session.peer.getHostAddress(), success));
+        }
+
+        @Override
+        public void streamComplete(StreamState state, boolean success) {
+            if (success) {
+                sendNotification(STREAM_SUCCESS, StreamStateCompositeData.toCompositeData(state));
+            } else {
+                sendNotification(STREAM_FAILURE, "Stream failed: " + state.planId);
+            }
+        }
+    };
 
     public StreamManager(APIClient c) {
         super(c);
     }
 
+    private StreamMonitor monitor() {
+        return StreamMonitor.getInstance(client);
+    }
+
     public Set<StreamState> getState() {
-        JsonArray arr = client.getJsonArray("/stream_manager/");
-        Set<StreamState> res = new HashSet<StreamState>();
-        for (int i = 0; i < arr.size(); i++) {
-            JsonObject obj = arr.getJsonObject(i);
-            res.add(new StreamState(obj.getString("plan_id"), obj.getString("description"),
-                    SessionInfo.fromJsonArr(obj.getJsonArray("sessions"))));
-        }
-        return res;
+        return new HashSet<StreamState>(monitor().getSnapshot().getStates());
     }
 
     @Override
     public Set<CompositeData> getCurrentStreams() {
         logger.finest("getCurrentStreams");
-        return Sets
-                .newHashSet(Iterables.transform(getState(), input -> StreamStateCompositeData.toCompositeData(input)));
+        return monitor().getSnapshot().getCompositeData();
+    }
+
+    // only the latest progress of a file matters to a lagging listener
+    private static Object coalescingKey(Notification notification) {
+        if (!PROGRESS.equals(notification.getType())) {
+            return null;
+        }
+        CompositeData progress = (CompositeData) notification.getUserData();
+        return Arrays.asList(progress.getAll(new String[] { "planId", "peer", "sessionIndex", "fileName", "direction" }));
+    }
+
+    private void sendNotification(String type, Object userData) {
+        Notification notification = new Notification(type, getBoundName(), notificationSerialNumber.incrementAndGet());
+        notification.setUserData(userData);
+        notifier.sendNotification(notification);
     }
 
     @Override
     public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
         notifier.addNotificationListener(listener, filter, handback);
+        synchronized (listeners) {
+            if (listeners.isEmpty()) {
+                monitor().addListener(monitorListener);
+            }
+            listeners.add(listener);
+        }
     }
 
     @Override
     public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException {
         notifier.removeNotificationListener(listener);
+        forget(listener);
+    }
+
+    private void forget(NotificationListener listener) {
+        synchronized (listeners) {
+            listeners.removeIf(l -> l == listener);
+            stopMonitoringIfIdle();
+        }
     }
 
     @Override
     public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback)
             throws ListenerNotFoundException {
         notifier.removeNotificationListener(listener, filter, handback);
+        synchronized (listeners) {
+            listeners.remove(listener);
+            stopMonitoringIfIdle();
+        }
+    }
+
+    private void stopMonitoringIfIdle() {
+        if (listeners.isEmpty()) {
+            monitor().removeListener(monitorListener);
+        }
     }
 
     @Override
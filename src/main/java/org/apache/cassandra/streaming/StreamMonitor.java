@@ -0,0 +1,450 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.streaming;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.management.openmbean.CompositeData;
+
+import org.apache.cassandra.streaming.management.StreamStateCompositeData;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.scylladb.jmx.api.APIClient;
+import com.scylladb.jmx.utils.InetAddressUtils;
+
+/**
+ * Follows the streams of the node by polling <code>/stream_manager/</code>.
+ * <p>
+ * Polling runs while someone listens for stream events, or has read the
+ * state within the last {@link #IDLE_TIMEOUT} ms. It polls every
+ * {@link #POLL_INTERVAL} ms while streams are active and every
+ * {@link #IDLE_POLL_INTERVAL} ms otherwise. Each poll is diffed against the
+ * previous one by plan id and peer, and the differences reported to the
+ * {@link Listener}s. The bytes transferred per peer are counted from the same
+ * polls.
+ */
+public class StreamMonitor {
+    private static final Logger logger = Logger.getLogger(StreamMonitor.class.getName());
+
+    static final long POLL_INTERVAL = Long.getLong("scylla.jmx.stream.poll_interval_ms", 1000);
+    static final long IDLE_POLL_INTERVAL = Long.getLong("scylla.jmx.stream.idle_poll_interval_ms", 10000);
+    static final long IDLE_TIMEOUT = Long.getLong("scylla.jmx.stream.idle_timeout_ms", 5 * 60 * 1000);
+
+    private static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("stream-monitor").build());
+
+    private static final Map<APIClient, StreamMonitor> instances = new WeakHashMap<>();
+
+    public static synchronized StreamMonitor getInstance(APIClient client) {
+        return instances.computeIfAbsent(client, StreamMonitor::new);
+    }
+
+    public interface Listener {
+        /** A session was seen for the first time */
+        void sessionPrepared(UUID planId, SessionInfo session);
+
+        /** Bytes were transferred for a file */
+        void progress(UUID planId, ProgressInfo progress);
+
+        /**
+         * A session completed, failed or went away. The server drops finished
+         * sessions and plans quickly, so how a session that went away between
+         * two polls ended is not known; its success is inferred: only
+         * sessions seen failing are reported as failed.
+         */
+        void sessionComplete(UUID planId, SessionInfo session, boolean success);
+
+        /**
+         * A plan is no longer listed; the state is the last one seen. As for
+         * sessions, success is inferred: the plan failed only if one of its
+         * sessions was seen failing.
+         */
+        void streamComplete(StreamState state, boolean success);
+    }
+
+    /**
+     * Bytes streamed with a peer as seen by the polls since the monitor was
+     * created, and the rates since the previous poll, in bytes/s. Sessions
+     * running only between two polls are missed, so the byte counts are
+     * only good for deriving rates; the server keeps the cumulative ones.
+     */
+    public static final class Traffic {
+        public static final Traffic NONE = new Traffic(0, 0, 0, 0);
+
+        public final long incoming;
+        public final long outgoing;
+        public final double incomingRate;
+        public final double outgoingRate;
+
+        Traffic(long incoming, long outgoing, double incomingRate, double outgoingRate) {
+            this.incoming = incoming;
+            this.outgoing = outgoing;
+            this.incomingRate = incomingRate;
+            this.outgoingRate = outgoingRate;
+        }
+    }
+
+    /**
+     * The streams at a given time.
+     */
+    public static final class Snapshot {
+        private final long timestamp;
+        private final Map<UUID, StreamState> states;
+        private Map<String, Traffic> traffic = Collections.emptyMap();
+        private Traffic total = Traffic.NONE;
+        private Set<CompositeData> compositeData;
+
+        Snapshot(long timestamp, Map<UUID, StreamState> states) {
+            this.timestamp = timestamp;
+            this.states = states;
+        }
+
+        /**
+         * Traffic per peer, by normalized address, of the peers with
+         * sessions listed.
+         */
+        public Map<String, Traffic> getTraffic() {
+            return traffic;
+        }
+
+        public Traffic getTraffic(String peer) {
+            return traffic.getOrDefault(peer, Traffic.NONE);
+        }
+
+        public Traffic getTotalTraffic() {
+            return total;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public Collection<StreamState> getStates() {
+            return states.values();
+        }
+
+        public boolean isActive() {
+            return !states.isEmpty();
+        }
+
+        /**
+         * The states as composite data, built once per snapshot.
+         */
+        public synchronized Set<CompositeData> getCompositeData() {
+            if (compositeData == null) {
+                Set<CompositeData> res = new HashSet<>();
+                for (StreamState state : states.values()) {
+                    res.add(StreamStateCompositeData.toCompositeData(state));
+                }
+                compositeData = Collections.unmodifiableSet(res);
+            }
+            return compositeData;
+        }
+    }
+
+    /**
+     * Bytes transferred in a session, as last seen.
+     */
+    private static final class SessionBytes {
+        private final String peer;
+        private final long incoming;
+        private final long outgoing;
+
+        SessionBytes(String peer, long incoming, long outgoing) {
+            this.peer = peer;
+            this.incoming = incoming;
+            this.outgoing = outgoing;
+        }
+    }
+
+    private final APIClient client;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // byte accounting, kept across monitoring restarts
+    private Map<String, SessionBytes> sessionBytes = new HashMap<>();
+    // of the peers still streaming
+    private final Map<String, long[]> retiredBytes = new HashMap<>();
+    private final long[] totalRetiredBytes = new long[2];
+    private Snapshot lastCounted;
+    private volatile Snapshot current;
+    private volatile long lastRead;
+    private ScheduledFuture<?> poller;
+
+    private StreamMonitor(APIClient client) {
+        this.client = client;
+    }
+
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+        if (listeners.size() == 1) {
+            // get a baseline right away, so that streams starting now are
+            // reported
+            schedule(0);
+        }
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * The latest state, fetched now if the last poll is older than the poll
+     * interval.
+     */
+    public Snapshot getSnapshot() {
+        lastRead = System.currentTimeMillis();
+        Snapshot s = current;
+        if (s == null || lastRead - s.timestamp > POLL_INTERVAL) {
+            synchronized (this) {
+                s = current;
+                if (s == null || System.currentTimeMillis() - s.timestamp > POLL_INTERVAL) {
+                    s = poll();
+                }
+                start();
+            }
+        }
+        return s;
+    }
+
+    private Snapshot fetch() {
+        JsonArray arr = client.getJsonArray("/stream_manager/");
+        Map<UUID, StreamState> res = new HashMap<>();
+        for (int i = 0; i < arr.size(); i++) {
+            JsonObject obj = arr.getJsonObject(i);
+            StreamState state = new StreamState(obj.getString("plan_id"), obj.getString("description"),
+                    SessionInfo.fromJsonArr(obj.getJsonArray("sessions")));
+            res.put(state.planId, state);
+        }
+        return new Snapshot(System.currentTimeMillis(), res);
+    }
+
+    private void start() {
+        if (poller == null) {
+            schedule(nextInterval());
+        }
+    }
+
+    // replaces the scheduled poll, if any, so that only one is ever pending
+    private synchronized void schedule(long delay) {
+        if (poller != null) {
+            poller.cancel(false);
+        }
+        poller = executor.schedule(this::backgroundPoll, delay, MILLISECONDS);
+    }
+
+    private long nextInterval() {
+        Snapshot s = current;
+        return s != null && s.isActive() ? POLL_INTERVAL : IDLE_POLL_INTERVAL;
+    }
+
+    private void backgroundPoll() {
+        synchronized (this) {
+            if (listeners.isEmpty() && System.currentTimeMillis() - lastRead > IDLE_TIMEOUT) {
+                poller = null;
+                current = null;
+                return;
+            }
+        }
+        try {
+            Snapshot s = current;
+            if (s == null || System.currentTimeMillis() - s.timestamp >= POLL_INTERVAL) {
+                poll();
+            }
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Failed to poll streams", e);
+        } finally {
+            schedule(nextInterval());
+        }
+    }
+
+    private synchronized Snapshot poll() {
+        Snapshot prev = current;
+        Snapshot next = fetch();
+        count(next);
+        current = next;
+        if (!listeners.isEmpty()) {
+            // with no previous poll, everything listed is new
+            diff(prev != null ? prev : new Snapshot(next.timestamp, Collections.emptyMap()), next);
+        }
+        return next;
+    }
+
+    /**
+     * Adds the bytes of the snapshot to the per peer counts. Sessions that
+     * went away keep contributing the bytes they were last seen with to the
+     * total, and to their peer while it has other sessions listed.
+     */
+    private void count(Snapshot next) {
+        Map<String, SessionBytes> live = new HashMap<>();
+        for (StreamState state : next.states.values()) {
+            for (SessionInfo session : state.sessions) {
+                String peer = InetAddressUtils.normalize(session.peer.getHostAddress());
+                live.put(state.planId + "/" + key(session),
+                        new SessionBytes(peer, session.getTotalSizeReceived(), session.getTotalSizeSent()));
+            }
+        }
+        for (Map.Entry<String, SessionBytes> e : sessionBytes.entrySet()) {
+            if (!live.containsKey(e.getKey())) {
+                long[] retired = retiredBytes.computeIfAbsent(e.getValue().peer, p -> new long[2]);
+                retired[0] += e.getValue().incoming;
+                retired[1] += e.getValue().outgoing;
+                totalRetiredBytes[0] += e.getValue().incoming;
+                totalRetiredBytes[1] += e.getValue().outgoing;
+            }
+        }
+        sessionBytes = live;
+        Set<String> peers = new HashSet<>();
+        for (SessionBytes b : live.values()) {
+            peers.add(b.peer);
+        }
+        retiredBytes.keySet().retainAll(peers);
+
+        Map<String, long[]> bytes = new HashMap<>();
+        for (Map.Entry<String, long[]> e : retiredBytes.entrySet()) {
+            bytes.put(e.getKey(), e.getValue().clone());
+        }
+        for (SessionBytes b : live.values()) {
+            long[] sum = bytes.computeIfAbsent(b.peer, p -> new long[2]);
+            sum[0] += b.incoming;
+            sum[1] += b.outgoing;
+        }
+
+        Snapshot prev = lastCounted;
+        double seconds = prev == null ? 0 : (next.timestamp - prev.timestamp) / 1000.0;
+        Map<String, Traffic> traffic = new HashMap<>();
+        long totalIn = totalRetiredBytes[0], totalOut = totalRetiredBytes[1];
+        for (Map.Entry<String, long[]> e : bytes.entrySet()) {
+            long in = e.getValue()[0], out = e.getValue()[1];
+            traffic.put(e.getKey(), traffic(in, out, prev == null ? null : prev.getTraffic(e.getKey()), seconds));
+        }
+        for (SessionBytes b : live.values()) {
+            totalIn += b.incoming;
+            totalOut += b.outgoing;
+        }
+        next.traffic = Collections.unmodifiableMap(traffic);
+        next.total = traffic(totalIn, totalOut, prev == null ? null : prev.total, seconds);
+        lastCounted = next;
+    }
+
+    private static Traffic traffic(long incoming, long outgoing, Traffic prev, double seconds) {
+        if (prev == null || seconds <= 0) {
+            return new Traffic(incoming, outgoing, 0, 0);
+        }
+        return new Traffic(incoming, outgoing, Math.max(0, incoming - prev.incoming) / seconds,
+                Math.max(0, outgoing - prev.outgoing) / seconds);
+    }
+
+    private static String key(SessionInfo session) {
+        return session.peer.getHostAddress() + "/" + session.sessionIndex;
+    }
+
+    private static Map<String, SessionInfo> sessions(StreamState state) {
+        Map<String, SessionInfo> res = new HashMap<>();
+        if (state != null) {
+            for (SessionInfo session : state.sessions) {
+                res.put(key(session), session);
+            }
+        }
+        return res;
+    }
+
+    private static Map<String, ProgressInfo> files(SessionInfo session) {
+        Map<String, ProgressInfo> res = new HashMap<>();
+        if (session != null) {
+            for (ProgressInfo p : session.getReceivingFiles()) {
+                res.put("IN/" + p.fileName, p);
+            }
+            for (ProgressInfo p : session.getSendingFiles()) {
+                res.put("OUT/" + p.fileName, p);
+            }
+        }
+        return res;
+    }
+
+    private static boolean isDone(SessionInfo session) {
+        return session.state == StreamSession.State.COMPLETE || session.state == StreamSession.State.FAILED;
+    }
+
+    private void diff(Snapshot prev, Snapshot next) {
+        for (StreamState state : next.states.values()) {
+            Map<String, SessionInfo> before = sessions(prev.states.get(state.planId));
+            for (SessionInfo session : state.sessions) {
+                SessionInfo old = before.get(key(session));
+                if (old == null) {
+                    listeners.forEach(l -> l.sessionPrepared(state.planId, session));
+                }
+                Map<String, ProgressInfo> oldFiles = files(old);
+                for (Map.Entry<String, ProgressInfo> e : files(session).entrySet()) {
+                    ProgressInfo p = oldFiles.get(e.getKey());
+                    if (p == null || p.currentBytes != e.getValue().currentBytes) {
+                        listeners.forEach(l -> l.progress(state.planId, e.getValue()));
+                    }
+                }
+                if (isDone(session) && (old == null || !isDone(old))) {
+                    boolean success = session.state == StreamSession.State.COMPLETE;
+                    listeners.forEach(l -> l.sessionComplete(state.planId, session, success));
+                }
+            }
+            // sessions that went away unfinished while the plan is still
+            // listed, not seen failing
+            Map<String, SessionInfo> after = sessions(state);
+            for (Map.Entry<String, SessionInfo> e : before.entrySet()) {
+                if (!after.containsKey(e.getKey()) && !isDone(e.getValue())) {
+                    listeners.forEach(l -> l.sessionComplete(state.planId, e.getValue(), true));
+                }
+            }
+        }
+        for (StreamState state : prev.states.values()) {
+            if (next.states.containsKey(state.planId)) {
+                continue;
+            }
+            // gone: finished plans are dropped by the server, so the
+            // unfinished sessions, not seen failing, most likely completed
+            for (SessionInfo session : state.sessions) {
+                if (!isDone(session)) {
+                    listeners.forEach(l -> l.sessionComplete(state.planId, session, true));
+                }
+            }
+            boolean success = !state.hasFailedSession();
+            listeners.forEach(l -> l.streamComplete(state, success));
+        }
+    }
+}
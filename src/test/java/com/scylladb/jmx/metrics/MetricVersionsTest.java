@@ -0,0 +1,185 @@
+package com.scylladb.jmx.metrics;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class MetricVersionsTest {
+    private static final ObjectName PATTERN = name("test:*");
+    private static final ObjectName A = name("test:type=A");
+    private static final ObjectName B = name("test:type=B");
+
+    private static ObjectName name(String s) {
+        try {
+            return new ObjectName(s);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static Map<ObjectName, Map<String, Object>> values(ObjectName name, Object... attributesAndValues) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < attributesAndValues.length; i += 2) {
+            values.put((String) attributesAndValues[i], attributesAndValues[i + 1]);
+        }
+        return singletonMap(name, values);
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static String changes(List<MetricVersions.Entry> entries) {
+        StringBuilder sb = new StringBuilder();
+        for (MetricVersions.Entry e : entries) {
+            sb.append(e.name.getKeyProperty("type")).append('.').append(e.attribute).append('=')
+                    .append(e.removed != 0 ? "removed" : e.value).append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+    @Test
+    public void testCursorValidity() {
+        MetricVersions versions = new MetricVersions();
+        long start = versions.getVersion();
+        // cursors of a previous instance, or never handed out
+        assertFalse(versions.isValid(0));
+        assertFalse(versions.isValid(start - 1));
+        assertFalse(versions.isValid(start + 1));
+        assertTrue(versions.isValid(start));
+
+        versions.record(values(A, "Count", 1L));
+        assertTrue(versions.isValid(start));
+        assertTrue(versions.isValid(versions.getVersion()));
+        assertFalse(versions.isValid(versions.getVersion() + 1));
+    }
+
+    @Test
+    public void testChangedSince() {
+        MetricVersions versions = new MetricVersions();
+        long start = versions.getVersion();
+        versions.record(values(A, "Count", 1L, "Mean", 2.0));
+        long cursor = versions.getVersion();
+        assertEquals(2, versions.changedSince(PATTERN, null, start).size());
+        assertEquals("", changes(versions.changedSince(PATTERN, null, cursor)));
+
+        // unchanged values, arrays included, do not bump the version
+        versions.record(values(A, "Count", 1L, "Mean", 2.0));
+        versions.record(values(B, "Values", new long[] { 1, 2 }));
+        long cursor2 = versions.getVersion();
+        versions.record(values(B, "Values", new long[] { 1, 2 }));
+        assertEquals(cursor2, versions.getVersion());
+
+        versions.record(values(A, "Count", 3L, "Mean", 2.0));
+        assertEquals("A.Count=3", changes(versions.changedSince(PATTERN, null, cursor2)));
+        assertEquals("", changes(versions.changedSince(PATTERN, set("Mean"), cursor2)));
+        assertEquals("", changes(versions.changedSince(B, null, cursor2)));
+    }
+
+    @Test
+    public void testTombstones() {
+        MetricVersions versions = new MetricVersions();
+        versions.record(values(A, "Count", 1L, "Mean", 2.0));
+        versions.record(values(B, "Count", 3L));
+        long cursor = versions.getVersion();
+
+        // B is gone, A no longer lists Mean
+        Map<ObjectName, Set<String>> listed = singletonMap(A, set("Count"));
+        versions.removeMissing(PATTERN, null, listed);
+        List<MetricVersions.Entry> changes = versions.changedSince(PATTERN, null, cursor);
+        assertEquals(2, changes.size());
+        for (MetricVersions.Entry e : changes) {
+            assertTrue(e.removed != 0);
+            assertNull(e.value);
+        }
+        assertTrue(versions.isValid(cursor));
+
+        // a removal is only reported once
+        long cursor2 = versions.getVersion();
+        versions.removeMissing(PATTERN, null, listed);
+        assertEquals(cursor2, versions.getVersion());
+
+        // coming back is a change
+        versions.record(values(B, "Count", 3L));
+        assertEquals("B.Count=3", changes(versions.changedSince(PATTERN, null, cursor2)));
+    }
+
+    @Test
+    public void testFailedReadIsNotRemoval() {
+        MetricVersions versions = new MetricVersions();
+        versions.record(values(A, "Count", 1L));
+        versions.record(values(B, "Count", 2L));
+        long cursor = versions.getVersion();
+
+        // both still registered, B's attributes cannot be told, and neither
+        // was read
+        Map<ObjectName, Set<String>> listed = new HashMap<>();
+        listed.put(A, set("Count"));
+        listed.put(B, null);
+        versions.removeMissing(PATTERN, null, listed);
+        assertEquals(cursor, versions.getVersion());
+        assertEquals("", changes(versions.changedSince(PATTERN, null, cursor)));
+    }
+
+    @Test
+    public void testRemovalOutsideReadIgnored() {
+        MetricVersions versions = new MetricVersions();
+        versions.record(values(A, "Count", 1L, "Mean", 2.0));
+        long cursor = versions.getVersion();
+        // a read of A.Count only says nothing about B or A.Mean
+        versions.removeMissing(A, set("Count"), singletonMap(A, set("Count")));
+        assertEquals(cursor, versions.getVersion());
+    }
+
+    @Test
+    public void testPurge() {
+        MetricVersions versions = new MetricVersions();
+        versions.record(values(A, "Count", 1L));
+        long before = versions.getVersion();
+        long now = System.currentTimeMillis();
+        Map<ObjectName, Set<String>> listed = new HashMap<>();
+        versions.removeMissing(PATTERN, null, listed, now);
+        long after = versions.getVersion();
+
+        // kept for the TTL
+        versions.removeMissing(PATTERN, null, listed, now + MetricVersions.TOMBSTONE_TTL);
+        assertTrue(versions.isValid(before));
+        assertEquals(1, versions.changedSince(PATTERN, null, before).size());
+
+        // then forgotten, so older cursors can no longer tell the removal
+        versions.removeMissing(PATTERN, null, listed, now + MetricVersions.TOMBSTONE_TTL + 1);
+        assertEquals(0, versions.changedSince(PATTERN, null, Long.MIN_VALUE).size());
+        assertFalse(versions.isValid(before));
+        assertTrue(versions.isValid(after));
+    }
+
+    @Test
+    public void testUnreadForgotten() {
+        MetricVersions versions = new MetricVersions();
+        long now = System.currentTimeMillis();
+        versions.record(values(A, "Count", 1L), now);
+        versions.record(values(B, "Count", 2L), now);
+        long cursor = versions.getVersion();
+
+        // only A is read again, B's pattern is abandoned
+        versions.record(values(A, "Count", 1L), now + MetricVersions.TOMBSTONE_TTL);
+        versions.removeMissing(A, null, singletonMap(A, set("Count")), now + MetricVersions.TOMBSTONE_TTL + 1);
+        assertEquals("A.Count=1", changes(versions.changedSince(PATTERN, null, Long.MIN_VALUE)));
+        // B may have gone away unnoticed
+        assertFalse(versions.isValid(cursor));
+    }
+}
@@ -0,0 +1,35 @@
+package com.scylladb.jmx.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class CallerCursorsTest {
+    @Test
+    public void testSwap() {
+        CallerCursors<Integer> cursors = new CallerCursors<>();
+        assertNull(cursors.swap("a", "dropped", 1));
+        assertEquals(1, (int) cursors.swap("a", "dropped", 2));
+        assertEquals(2, (int) cursors.swap("a", "dropped", 3));
+    }
+
+    @Test
+    public void testClientsAreIndependent() {
+        CallerCursors<Integer> cursors = new CallerCursors<>();
+        cursors.swap("a", "dropped", 1);
+        assertNull(cursors.swap("b", "dropped", 2));
+        assertNull(cursors.swap("a", "timeouts", 3));
+        assertEquals(1, (int) cursors.swap("a", "dropped", 4));
+        assertEquals(2, (int) cursors.swap("b", "dropped", 5));
+    }
+
+    @Test
+    public void testSharedCursor() {
+        CallerCursors<Integer> cursors = new CallerCursors<>();
+        assertNull(cursors.swap(null, "dropped", 1));
+        // clients not passing a token see each other's reads
+        assertEquals(1, (int) cursors.swap(null, "dropped", 2));
+        assertNull(cursors.swap("a", "dropped", 3));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.dht;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.google.common.hash.Hashing;
+
+public class Murmur3PartitionerTest {
+    private static ByteBuffer intKey(int value) {
+        ByteBuffer key = ByteBuffer.allocate(4);
+        key.putInt(0, value);
+        return key;
+    }
+
+    private static long guava(byte[] key) {
+        return Hashing.murmur3_128(0).hashBytes(key).asLong();
+    }
+
+    /**
+     * Tokens of int partition keys 1 to 5, as returned by
+     * <code>SELECT token(k)</code> on Cassandra and Scylla.
+     */
+    @Test
+    public void testKnownTokens() {
+        assertEquals(-4069959284402364209L, Murmur3Partitioner.getToken(intKey(1)));
+        assertEquals(-3248873570005575792L, Murmur3Partitioner.getToken(intKey(2)));
+        assertEquals(9010454139840013625L, Murmur3Partitioner.getToken(intKey(3)));
+        assertEquals(-2729420104000364805L, Murmur3Partitioner.getToken(intKey(4)));
+        assertEquals(-7509452495886106294L, Murmur3Partitioner.getToken(intKey(5)));
+    }
+
+    /**
+     * Without tail bytes of 0x80 or more the hash is plain MurmurHash3, so
+     * check every tail length against an independent implementation.
+     */
+    @Test
+    public void testStandardHash() {
+        StringBuilder sb = new StringBuilder();
+        for (int length = 1; length <= 48; ++length) {
+            sb.append((char) ('a' + length % 26));
+            byte[] key = sb.toString().getBytes(UTF_8);
+            assertEquals(sb.toString(), guava(key), Murmur3Partitioner.getToken(ByteBuffer.wrap(key)));
+        }
+        // high bytes in whole blocks are read unsigned, as in the standard
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; ++i) {
+            key[i] = (byte) (0xff - i);
+        }
+        assertEquals(guava(key), Murmur3Partitioner.getToken(ByteBuffer.wrap(key)));
+    }
+
+    /**
+     * Tail bytes are sign extended, as in Cassandra, which makes the token
+     * differ from the standard hash.
+     */
+    @Test
+    public void testSignExtendedTail() {
+        byte[] key = { (byte) 0x80, (byte) 0xff, 0x7f };
+        assertNotEquals(guava(key), Murmur3Partitioner.getToken(ByteBuffer.wrap(key)));
+    }
+
+    @Test
+    public void testBufferPosition() {
+        ByteBuffer key = ByteBuffer.allocate(10);
+        key.position(3);
+        key.putInt(1);
+        key.flip().position(3);
+        assertEquals(-4069959284402364209L, Murmur3Partitioner.getToken(key));
+        assertEquals(3, key.position());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(4);
+        direct.putInt(0, 1);
+        assertEquals(-4069959284402364209L, Murmur3Partitioner.getToken(direct));
+    }
+
+    @Test
+    public void testMinimum() {
+        assertEquals(Murmur3Partitioner.MINIMUM, Murmur3Partitioner.getToken(ByteBuffer.allocate(0)));
+        // only the empty key may have the minimum token
+        assertEquals(Murmur3Partitioner.MAXIMUM, Murmur3Partitioner.normalize(Long.MIN_VALUE));
+        assertEquals(Long.MIN_VALUE + 1, Murmur3Partitioner.normalize(Long.MIN_VALUE + 1));
+        assertEquals(0, Murmur3Partitioner.normalize(0));
+        assertEquals(Long.MAX_VALUE, Murmur3Partitioner.normalize(Long.MAX_VALUE));
+    }
+}
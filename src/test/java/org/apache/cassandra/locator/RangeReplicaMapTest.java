@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.locator;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class RangeReplicaMapTest {
+    private static final Map<List<String>, List<String>> THREE_NODES = new LinkedHashMap<>();
+
+    static {
+        // ring -100 (a), 0 (b), 100 (c), RF 2
+        THREE_NODES.put(asList("100", "-100"), asList("10.0.0.1", "10.0.0.2"));
+        THREE_NODES.put(asList("-100", "0"), asList("10.0.0.2", "10.0.0.3"));
+        THREE_NODES.put(asList("0", "100"), asList("10.0.0.3", "10.0.0.1"));
+    }
+
+    private static long end(RangeReplicaMap map, long token) {
+        return map.end(map.rangeIndex(token));
+    }
+
+    @Test
+    public void testRangeIndex() {
+        RangeReplicaMap map = RangeReplicaMap.from(THREE_NODES);
+        assertEquals(3, map.size());
+        // ranges are (start, end]
+        assertEquals(0, end(map, -99));
+        assertEquals(0, end(map, 0));
+        assertEquals(100, end(map, 1));
+        assertEquals(100, end(map, 100));
+        assertEquals(asList("10.0.0.3", "10.0.0.1"), map.replicas(map.rangeIndex(50)));
+    }
+
+    @Test
+    public void testWrapAround() {
+        RangeReplicaMap map = RangeReplicaMap.from(THREE_NODES);
+        for (long token : new long[] { 101, Long.MAX_VALUE, Long.MIN_VALUE, -101, -100 }) {
+            int i = map.rangeIndex(token);
+            assertEquals(100, map.start(i));
+            assertEquals(-100, map.end(i));
+        }
+        assertEquals(asList("10.0.0.1", "10.0.0.2"), map.replicas(map.rangeIndex(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testSingleNode() {
+        Map<List<String>, List<String>> ranges = new LinkedHashMap<>();
+        ranges.put(asList("42", "42"), asList("10.0.0.1"));
+        RangeReplicaMap map = RangeReplicaMap.from(ranges);
+        for (long token : new long[] { Long.MIN_VALUE, -1, 41, 42, 43, Long.MAX_VALUE }) {
+            assertEquals(0, map.rangeIndex(token));
+        }
+        assertEquals(1.0f, map.effectiveOwnership().get("10.0.0.1"), 0);
+    }
+
+    @Test
+    public void testUncovered() {
+        Map<List<String>, List<String>> ranges = new LinkedHashMap<>();
+        ranges.put(asList("-100", "0"), asList("10.0.0.1"));
+        RangeReplicaMap map = RangeReplicaMap.from(ranges);
+        assertEquals(0, map.rangeIndex(0));
+        assertEquals(-1, map.rangeIndex(-100));
+        assertEquals(-1, map.rangeIndex(1));
+        assertEquals(-1, map.rangeIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testEffectiveOwnership() {
+        Map<String, Float> ownership = RangeReplicaMap.from(THREE_NODES).effectiveOwnership();
+        float total = 0;
+        for (float f : ownership.values()) {
+            total += f;
+        }
+        assertEquals(3, ownership.size());
+        assertEquals(2.0f, total, 1e-6);
+    }
+
+    @Test
+    public void testToMap() {
+        assertEquals(THREE_NODES, RangeReplicaMap.from(THREE_NODES).toMap());
+    }
+
+    @Test
+    public void testNotMurmur3() {
+        Map<List<String>, List<String>> ranges = new LinkedHashMap<>();
+        ranges.put(asList("abc", "def"), asList("10.0.0.1"));
+        assertNull(RangeReplicaMap.from(ranges));
+        ranges.clear();
+        ranges.put(asList("1"), asList("10.0.0.1"));
+        assertNull(RangeReplicaMap.from(ranges));
+    }
+}
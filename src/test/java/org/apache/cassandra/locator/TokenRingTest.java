@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.locator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TokenRingTest {
+    private static TokenRing ring(String... tokensAndEndpoints) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < tokensAndEndpoints.length; i += 2) {
+            map.put(tokensAndEndpoints[i], tokensAndEndpoints[i + 1]);
+        }
+        return TokenRing.from(map);
+    }
+
+    @Test
+    public void testSorted() {
+        TokenRing ring = ring("100", "10.0.0.3", "-100", "10.0.0.1", "0", "10.0.0.2");
+        assertEquals(3, ring.size());
+        assertEquals(-100, ring.token(0));
+        assertEquals("10.0.0.1", ring.owner(0));
+        assertEquals(0, ring.token(1));
+        assertEquals("10.0.0.2", ring.owner(1));
+        assertEquals(100, ring.token(2));
+        assertEquals("10.0.0.3", ring.owner(2));
+    }
+
+    @Test
+    public void testOwnerIndex() {
+        TokenRing ring = ring("-100", "10.0.0.1", "0", "10.0.0.2", "100", "10.0.0.3");
+        // a token is owned by the first token greater or equal to it
+        assertEquals(0, ring.ownerIndex(-100));
+        assertEquals(1, ring.ownerIndex(-99));
+        assertEquals(1, ring.ownerIndex(0));
+        assertEquals(2, ring.ownerIndex(1));
+        assertEquals(2, ring.ownerIndex(100));
+        // wrapping around
+        assertEquals(0, ring.ownerIndex(101));
+        assertEquals(0, ring.ownerIndex(Long.MAX_VALUE));
+        assertEquals(0, ring.ownerIndex(Long.MIN_VALUE));
+        assertEquals("10.0.0.1", ring.primaryEndpoint(Long.MAX_VALUE));
+        assertEquals("10.0.0.3", ring.primaryEndpoint(50));
+    }
+
+    @Test
+    public void testSingleNode() {
+        TokenRing ring = ring("42", "10.0.0.1");
+        for (long token : new long[] { Long.MIN_VALUE, -1, 41, 42, 43, Long.MAX_VALUE }) {
+            assertEquals(0, ring.ownerIndex(token));
+            assertEquals("10.0.0.1", ring.primaryEndpoint(token));
+        }
+        assertEquals(1.0f, ring.ownership().get("10.0.0.1"), 0);
+    }
+
+    @Test
+    public void testEmpty() {
+        TokenRing ring = ring();
+        assertEquals(0, ring.size());
+        assertNull(ring.primaryEndpoint(0));
+    }
+
+    @Test
+    public void testNotMurmur3() {
+        assertNull(ring("-100", "10.0.0.1", "abcdef", "10.0.0.2"));
+    }
+
+    @Test
+    public void testEndpointsNormalized() {
+        TokenRing ring = ring("-100", "::1", "100", "0:0:0:0:0:0:0:1");
+        assertEquals("0:0:0:0:0:0:0:1", ring.owner(0));
+        assertEquals(1, ring.ownership().size());
+    }
+
+    @Test
+    public void testWidth() {
+        assertEquals(1.0, TokenRing.width(5, 5), 0);
+        assertEquals(0.5, TokenRing.width(Long.MIN_VALUE, 0), 0);
+        assertEquals(0.5, TokenRing.width(0, Long.MIN_VALUE), 0);
+        assertEquals(0x1p-64, TokenRing.width(Long.MAX_VALUE, Long.MIN_VALUE), 0);
+        assertEquals(1.0 - 0x1p-64, TokenRing.width(Long.MIN_VALUE, Long.MAX_VALUE), 0x1p-60);
+    }
+
+    @Test
+    public void testOwnership() {
+        TokenRing ring = ring(Long.toString(Long.MIN_VALUE), "10.0.0.1", "0", "10.0.0.2");
+        Map<String, Float> ownership = ring.ownership();
+        assertEquals(0.5f, ownership.get("10.0.0.1"), 0);
+        assertEquals(0.5f, ownership.get("10.0.0.2"), 0);
+    }
+
+    @Test
+    public void testToTokenToEndpointMap() {
+        Map<String, String> map = ring("100", "10.0.0.2", "-100", "10.0.0.1").toTokenToEndpointMap();
+        assertEquals("[-100, 100]", map.keySet().toString());
+        assertEquals("[10.0.0.1, 10.0.0.2]", map.values().toString());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Copyright 2026 ScyllaDB
+ *
+ * Modified by ScyllaDB
+ */
+package org.apache.cassandra.repair;
+
+import static org.apache.cassandra.repair.RepairScheduler.split;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class RepairSchedulerTest {
+    // a segment size of the given number of tokens
+    private static double tokens(long n) {
+        return n / 0x1p64;
+    }
+
+    private static String pieces(List<long[]> pieces) {
+        StringBuilder sb = new StringBuilder();
+        for (long[] p : pieces) {
+            sb.append('(').append(p[0]).append(',').append(p[1]).append("] ");
+        }
+        return sb.toString().trim();
+    }
+
+    private static void assertContiguous(long start, long end, List<long[]> pieces) {
+        long s = start;
+        for (long[] p : pieces) {
+            assertEquals(s, p[0]);
+            s = p[1];
+        }
+        assertEquals(end, s);
+    }
+
+    @Test
+    public void testSmallRange() {
+        assertEquals("(0,10]", pieces(split(0, 10, 0.5)));
+        assertEquals("(-10,10]", pieces(split(-10, 10, tokens(20))));
+    }
+
+    @Test
+    public void testEvenSplit() {
+        assertEquals("(0,25] (25,50] (50,75] (75,100]", pieces(split(0, 100, tokens(25))));
+    }
+
+    @Test
+    public void testRemainder() {
+        // 10 tokens in pieces of at most 3: the last piece absorbs the rest
+        assertEquals("(0,2] (2,4] (4,6] (6,10]", pieces(split(0, 10, tokens(3))));
+    }
+
+    @Test
+    public void testWrapAround() {
+        long start = Long.MAX_VALUE - 99;
+        long end = Long.MIN_VALUE + 100;
+        List<long[]> pieces = split(start, end, tokens(50));
+        assertEquals(4, pieces.size());
+        assertContiguous(start, end, pieces);
+        assertEquals(Long.MAX_VALUE - 49, pieces.get(0)[1]);
+        assertEquals(Long.MIN_VALUE, pieces.get(1)[1]);
+        assertEquals(Long.MIN_VALUE + 50, pieces.get(2)[1]);
+    }
+
+    @Test
+    public void testWholeRing() {
+        for (long token : new long[] { 0, Long.MIN_VALUE, Long.MAX_VALUE, -42 }) {
+            assertEquals(1, split(token, token, 1.0).size());
+            assertContiguous(token, token, split(token, token, 1.0));
+
+            List<long[]> pieces = split(token, token, 0.25);
+            assertEquals(4, pieces.size());
+            assertContiguous(token, token, pieces);
+            // the division is one token short of the ring, the last piece
+            // gets the remainder and that token
+            for (int i = 0; i < 3; ++i) {
+                assertEquals(0x3fffffffffffffffL, pieces.get(i)[1] - pieces.get(i)[0]);
+            }
+            assertEquals(0x4000000000000003L, pieces.get(3)[1] - pieces.get(3)[0]);
+        }
+    }
+}